@@ -0,0 +1,98 @@
+#!/usr/bin/env bash
+# Compares startup time and memory of the default jar with the -Pstartup artifact (AOT + CDS + lazy init).
+#
+#   scripts/startup-benchmark.sh [runs]      (default 10 runs per variant, Linux only: reads /proc)
+#
+# Both variants are built from the current tree and started with the same JVM options
+# ($BENCH_JAVA_OPTS, default "-Xmx256m") on an idle port. Per run it records:
+#   started_s  Spring's "Started ... in X seconds" (context ready)
+#   ready_ms   wall time from exec until /actuator/health answers 200, i.e. what an autoscaler sees
+#   rss_mb     resident set size once ready
+#   first_ms   latency of the first /api/weather/trends request (includes lazy bean creation)
+# and prints the median of each. No OWM calls are made.
+set -euo pipefail
+
+RUNS="${1:-10}"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+MVN="${MVN:-sh ./mvnw}"
+JAVA_OPTS="${BENCH_JAVA_OPTS:--Xmx256m}"
+
+cd "$(dirname "$0")/.."
+WORK="$(mktemp -d)"
+trap 'rm -rf "$WORK"' EXIT
+
+echo "Building default jar..." >&2
+$MVN -B -q -DskipTests package
+mkdir -p "$WORK/default"
+cp target/weather-backend-*.jar "$WORK/default/"
+DEFAULT_JAR="$(ls "$WORK"/default/weather-backend-*.jar)"
+
+echo "Building startup-optimized artifact..." >&2
+$MVN -B -q -DskipTests -Pstartup package
+cp -r target/startup "$WORK/optimized"
+# Launched from its own directory with a relative path: the CDS archive is only used with the classpath it was trained on
+OPTIMIZED_JAR="$(basename "$(ls "$WORK"/optimized/weather-backend-*.jar)")"
+
+free_port() {
+    python3 -c 'import socket; s = socket.socket(); s.bind(("localhost", 0)); print(s.getsockname()[1]); s.close()'
+}
+
+now_ms() {
+    date +%s%3N
+}
+
+# run_once <variant> -> "started_s ready_ms rss_mb first_ms"
+run_once() {
+    local variant="$1" port log pid start ready rss first started
+    port="$(free_port)"
+    log="$WORK/$variant.log"
+    local app_args=(--server.port="$port" --weather.cache.snapshot-path="$WORK/$variant-cache.bin")
+    start="$(now_ms)"
+    if [[ "$variant" == default ]]; then
+        # shellcheck disable=SC2086
+        "$JAVA" $JAVA_OPTS -jar "$DEFAULT_JAR" "${app_args[@]}" > "$log" 2>&1 &
+    else
+        # shellcheck disable=SC2086
+        (cd "$WORK/optimized" && exec "$JAVA" $JAVA_OPTS -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true \
+            -jar "$OPTIMIZED_JAR" --spring.profiles.active=startup "${app_args[@]}") > "$log" 2>&1 &
+    fi
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$port/actuator/health"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "$variant failed to start, see log:" >&2
+            cat "$log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    ready=$(( $(now_ms) - start ))
+    rss=$(awk '/VmRSS/ { printf "%.1f", $2 / 1024 }' "/proc/$pid/status")
+    start="$(now_ms)"
+    curl -sf -o /dev/null "http://localhost:$port/api/weather/trends"
+    first=$(( $(now_ms) - start ))
+    started=$(sed -n 's/.*Started WeatherBackendApplication in \([0-9.]*\) seconds.*/\1/p' "$log")
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$started $ready $rss $first"
+}
+
+median() {
+    sort -g | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+"$JAVA" -version 2>&1 | head -1 >&2
+printf '| variant | started_s | ready_ms | rss_mb | first_ms |\n|---|---|---|---|---|\n'
+for variant in default optimized; do
+    results="$WORK/$variant.results"
+    : > "$results"
+    # One discarded warm-up run so both variants start with a warm page cache
+    run_once "$variant" > /dev/null
+    for _ in $(seq "$RUNS"); do
+        run_once "$variant" >> "$results"
+    done
+    printf '| %s | %s | %s | %s | %s |\n' "$variant" \
+        "$(cut -d' ' -f1 "$results" | median)" \
+        "$(cut -d' ' -f2 "$results" | median)" \
+        "$(cut -d' ' -f3 "$results" | median)" \
+        "$(cut -d' ' -f4 "$results" | median)"
+done
@@ -1,11 +1,26 @@
 package com.example.weather_backend;
 
+import com.example.weather_backend.dto.CoordDto;
+import com.example.weather_backend.dto.OwmAirPollutionResponseDto;
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+import com.example.weather_backend.dto.OwmForecastResponseDto;
+import com.example.weather_backend.dto.OwmGeocodingResponseDto;
+import com.example.weather_backend.dto.WeatherUpdateDto;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @SpringBootApplication
+// Read/written by RestTemplate, the off-heap cache and the subscription hub rather than controller signatures,
+// so AOT cannot infer them; needed for the native image (-Pnative)
+@RegisterReflectionForBinding({OwmCurrentWeatherResponseDto.class, OwmForecastResponseDto.class, OwmAirPollutionResponseDto.class,
+        OwmGeocodingResponseDto.class, CoordDto.class, WeatherUpdateDto.class})
 public class WeatherBackendApplication {
 
     public static void main(String[] args) {
@@ -13,8 +28,13 @@ public class WeatherBackendApplication {
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        // Consider adding configurations like timeouts, error handlers later
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${openweathermap.api.connect-timeout:2s}") Duration connectTimeout,
+                                     @Value("${openweathermap.api.read-timeout:5s}") Duration readTimeout) {
+        // Bounded timeouts so a hung OWM call fails over to a retry instead of eating the whole request deadline
+        return builder
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.example.weather_backend.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient-style adaptive concurrency limit for inbound requests that may call OWM.
+ * <p>
+ * Latencies of completed requests are averaged per window (the short-term RTT) and folded into a
+ * slow moving average (the long-term RTT). While the short-term RTT stays within
+ * {@code rtt-tolerance} of the long-term one the limit grows by about {@code sqrt(limit)} per
+ * window (damped by {@code smoothing}); once requests start queueing behind slow upstream calls the
+ * ratio drops below 1 and the limit shrinks in proportion right away, at most halving per window.
+ * The limit only grows while it is actually in use, so an idle service does not drift to {@code max-limit}.
+ * <p>
+ * Metrics: {@code weather.admission.limit}, {@code weather.admission.inflight} and
+ * {@code weather.admission.requests} by outcome (admitted, rejected, priority, stale).
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    private static final int LONG_WINDOW = 600; // long-term RTT averages over roughly this many samples
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final int windowSamples;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    private final Counter admitted;
+    private final Counter rejected;
+    private final Counter priority;
+    private final Counter stale;
+
+    // Current window, guarded by this
+    private long windowRttSumNanos;
+    private int windowCount;
+    private int windowMaxInflight;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry,
+                                      @Value("${weather.admission.enabled:true}") boolean enabled,
+                                      @Value("${weather.admission.initial-limit:20}") int initialLimit,
+                                      @Value("${weather.admission.min-limit:4}") int minLimit,
+                                      @Value("${weather.admission.max-limit:200}") int maxLimit,
+                                      @Value("${weather.admission.smoothing:0.2}") double smoothing,
+                                      @Value("${weather.admission.rtt-tolerance:1.5}") double rttTolerance,
+                                      @Value("${weather.admission.window-samples:20}") int windowSamples) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.windowSamples = windowSamples;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        meterRegistry.gauge("weather.admission.limit", this, AdaptiveConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("weather.admission.inflight", inflight);
+        this.admitted = meterRegistry.counter("weather.admission.requests", "outcome", "admitted");
+        this.rejected = meterRegistry.counter("weather.admission.requests", "outcome", "rejected");
+        this.priority = meterRegistry.counter("weather.admission.requests", "outcome", "priority");
+        this.stale = meterRegistry.counter("weather.admission.requests", "outcome", "stale");
+    }
+
+    /**
+     * Takes a slot if the request fits under the current limit; returns null otherwise.
+     * The caller must {@link Permit#release() release} the permit when the request completes.
+     */
+    public Permit tryAcquire() {
+        if (!enabled) {
+            return new Permit(System.nanoTime(), false);
+        }
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return new Permit(System.nanoTime(), true);
+            }
+        }
+    }
+
+    // Served without a permit because everything it needs is already cached
+    public void recordPriority() {
+        priority.increment();
+    }
+
+    // Rejected by the limit but answered from expired cache entries instead of a 503
+    public void recordStale() {
+        stale.increment();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    synchronized void onSample(long rttNanos, int inflightAtStart) {
+        windowRttSumNanos += rttNanos;
+        windowCount++;
+        windowMaxInflight = Math.max(windowMaxInflight, inflightAtStart);
+        if (windowCount < windowSamples) {
+            return;
+        }
+        double shortRtt = (double) windowRttSumNanos / windowCount;
+        int maxInflight = windowMaxInflight;
+        windowRttSumNanos = 0;
+        windowCount = 0;
+        windowMaxInflight = 0;
+
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) * 2.0 / (LONG_WINDOW / (double) windowSamples + 1);
+            // After a long overload the baseline has crept up; let it come back down faster
+            if (longRttNanos / shortRtt > 2) {
+                longRttNanos *= 0.95;
+            }
+        }
+        double currentLimit = limit;
+        if (maxInflight < currentLimit / 2) {
+            return; // not limit-bound, so the latency says nothing about a higher limit
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / shortRtt));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        if (newLimit > currentLimit) {
+            newLimit = currentLimit * (1 - smoothing) + newLimit * smoothing; // grow cautiously, back off at once
+        }
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        if ((int) newLimit != (int) currentLimit) {
+            logger.debug("Concurrency limit {} -> {} (short rtt {} ms, long rtt {} ms)", (int) currentLimit, (int) newLimit,
+                    Math.round(shortRtt / 1_000_000), Math.round(longRttNanos / 1_000_000));
+        }
+        limit = newLimit;
+    }
+
+    /**
+     * One admitted request. Releasing it records its latency as a sample.
+     */
+    public final class Permit {
+
+        private final long startedNanos;
+        private final boolean counted;
+        private final int inflightAtStart;
+        private boolean released;
+
+        private Permit(long startedNanos, boolean counted) {
+            this.startedNanos = startedNanos;
+            this.counted = counted;
+            this.inflightAtStart = counted ? inflight.get() : 0;
+        }
+
+        public void release() {
+            if (released || !counted) {
+                return;
+            }
+            released = true;
+            inflight.decrementAndGet();
+            onSample(System.nanoTime() - startedNanos, inflightAtStart);
+        }
+    }
+}
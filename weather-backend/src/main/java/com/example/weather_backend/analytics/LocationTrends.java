@@ -0,0 +1,116 @@
+package com.example.weather_backend.analytics;
+
+import com.example.weather_backend.dto.WeatherTrendsDto;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling aggregates for a single location. Every observation updates each window in O(1);
+ * a snapshot only reads the fixed bucket arrays.
+ */
+class LocationTrends {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long TENDENCY_LOOKBACK = 3 * HOUR;
+    private static final double PRESSURE_STEADY_HPA = 1.0; // |change| over 3h below this counts as steady
+    private static final double AQI_STABLE_BAND = 0.5;
+
+    private final String locationKey;
+    private final double latitude;
+    private final double longitude;
+    private String name;
+
+    private final RollingWindow temperature1h = new RollingWindow(HOUR, 12);
+    private final RollingWindow temperature24h = new RollingWindow(24 * HOUR, 48);
+    private final RollingWindow temperature7d = new RollingWindow(7 * 24 * HOUR, 168);
+    private final RollingWindow pressure24h = new RollingWindow(24 * HOUR, 24);
+    private final RollingWindow aqi24h = new RollingWindow(24 * HOUR, 24);
+    private final RollingWindow pm25Of24h = new RollingWindow(24 * HOUR, 24);
+
+    private long lastWeatherMillis = Long.MIN_VALUE;
+    private long lastAirQualityMillis = Long.MIN_VALUE;
+    private double lastPressure = Double.NaN;
+    private double lastPm25 = Double.NaN;
+    private int lastAqi;
+    private int observations;
+
+    LocationTrends(String locationKey, double latitude, double longitude) {
+        this.locationKey = locationKey;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * Records a current-weather observation; repeats of the same upstream timestamp
+     * (e.g. served from cache) are ignored so they don't skew the means.
+     */
+    synchronized void recordWeather(String resolvedName, long observedMillis, double temperature, double pressure) {
+        if (resolvedName != null) {
+            name = resolvedName;
+        }
+        if (observedMillis <= lastWeatherMillis) {
+            return;
+        }
+        lastWeatherMillis = observedMillis;
+        observations++;
+        temperature1h.add(observedMillis, temperature);
+        temperature24h.add(observedMillis, temperature);
+        temperature7d.add(observedMillis, temperature);
+        if (pressure > 0) {
+            pressure24h.add(observedMillis, pressure);
+            lastPressure = pressure;
+        }
+    }
+
+    synchronized void recordAirQuality(long observedMillis, int aqi, double pm25) {
+        if (observedMillis <= lastAirQualityMillis) {
+            return;
+        }
+        lastAirQualityMillis = observedMillis;
+        lastAqi = aqi;
+        aqi24h.add(observedMillis, aqi);
+        if (!Double.isNaN(pm25)) {
+            pm25Of24h.add(observedMillis, pm25);
+            lastPm25 = pm25;
+        }
+    }
+
+    synchronized WeatherTrendsDto snapshot(long nowMillis) {
+        Double pressureTendency = change(lastPressure, pressure24h, lastWeatherMillis);
+        RollingWindow.Stats aqiStats = aqi24h.stats(nowMillis);
+        return WeatherTrendsDto.builder()
+                .locationKey(locationKey)
+                .name(name)
+                .latitude(latitude)
+                .longitude(longitude)
+                .lastObservation(lastWeatherMillis > 0 ? lastWeatherMillis / 1000 : 0)
+                .observations(observations)
+                .temperature1h(toDto(temperature1h.stats(nowMillis)))
+                .temperature24h(toDto(temperature24h.stats(nowMillis)))
+                .temperature7d(toDto(temperature7d.stats(nowMillis)))
+                .pressureTendency3h(pressureTendency)
+                .pressureTrend(pressureTendency == null ? null
+                        : pressureTendency > PRESSURE_STEADY_HPA ? "rising"
+                        : pressureTendency < -PRESSURE_STEADY_HPA ? "falling" : "steady")
+                .currentAqi(aqiStats != null ? lastAqi : null)
+                .aqi24h(toDto(aqiStats))
+                .pm25Change3h(change(lastPm25, pm25Of24h, lastAirQualityMillis))
+                .aqiTrend(aqiStats == null || aqiStats.samples() < 2 ? null
+                        : lastAqi > aqiStats.mean() + AQI_STABLE_BAND ? "worsening"
+                        : lastAqi < aqiStats.mean() - AQI_STABLE_BAND ? "improving" : "stable")
+                .build();
+    }
+
+    // Latest value minus the mean of the hourly bucket three hours before it
+    private static Double change(double latest, RollingWindow window, long latestMillis) {
+        if (Double.isNaN(latest) || latestMillis <= 0) {
+            return null;
+        }
+        double earlier = window.bucketMean(latestMillis - TENDENCY_LOOKBACK);
+        return Double.isNaN(earlier) ? null : latest - earlier;
+    }
+
+    private static WeatherTrendsDto.WindowStats toDto(RollingWindow.Stats stats) {
+        return stats == null ? null : new WeatherTrendsDto.WindowStats(stats.min(), stats.max(), stats.mean(), stats.samples());
+    }
+}
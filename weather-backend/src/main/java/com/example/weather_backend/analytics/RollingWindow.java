@@ -0,0 +1,86 @@
+package com.example.weather_backend.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Time-bucketed sliding window over a numeric series, backed by primitive ring buffers.
+ * <p>
+ * Each slot remembers which bucket (timestamp / bucketMillis) it holds, so stale slots are simply
+ * overwritten when reused instead of being cleared as time advances. Adding an observation is O(1);
+ * reading the window scans a fixed number of buckets and never touches raw history.
+ * Not thread-safe: callers synchronize per location.
+ */
+class RollingWindow {
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final long[] bucketIds;
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+
+    RollingWindow(long windowMillis, int bucketCount) {
+        this.bucketMillis = windowMillis / bucketCount;
+        this.bucketCount = bucketCount;
+        this.bucketIds = new long[bucketCount];
+        this.counts = new int[bucketCount];
+        this.sums = new double[bucketCount];
+        this.mins = new double[bucketCount];
+        this.maxs = new double[bucketCount];
+        Arrays.fill(bucketIds, Long.MIN_VALUE); // never inside a window, not even one around the epoch
+    }
+
+    void add(long timestampMillis, double value) {
+        long bucketId = timestampMillis / bucketMillis;
+        int slot = (int) (bucketId % bucketCount);
+        if (bucketIds[slot] != bucketId) {
+            if (bucketIds[slot] > bucketId) {
+                return; // older than the window already covers
+            }
+            bucketIds[slot] = bucketId;
+            counts[slot] = 0;
+            sums[slot] = 0;
+            mins[slot] = Double.POSITIVE_INFINITY;
+            maxs[slot] = Double.NEGATIVE_INFINITY;
+        }
+        counts[slot]++;
+        sums[slot] += value;
+        mins[slot] = Math.min(mins[slot], value);
+        maxs[slot] = Math.max(maxs[slot], value);
+    }
+
+    /**
+     * Min/max/mean over the buckets still inside the window at {@code nowMillis}, or null if empty.
+     */
+    Stats stats(long nowMillis) {
+        long newest = nowMillis / bucketMillis;
+        long oldest = newest - bucketCount + 1;
+        int samples = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int slot = 0; slot < bucketCount; slot++) {
+            long id = bucketIds[slot];
+            if (id >= oldest && id <= newest) {
+                samples += counts[slot];
+                sum += sums[slot];
+                min = Math.min(min, mins[slot]);
+                max = Math.max(max, maxs[slot]);
+            }
+        }
+        return samples == 0 ? null : new Stats(min, max, sum / samples, samples);
+    }
+
+    /**
+     * Mean of the bucket containing {@code timestampMillis}, or NaN if nothing was observed then.
+     */
+    double bucketMean(long timestampMillis) {
+        long bucketId = timestampMillis / bucketMillis;
+        int slot = (int) (bucketId % bucketCount);
+        return bucketIds[slot] == bucketId && counts[slot] > 0 ? sums[slot] / counts[slot] : Double.NaN;
+    }
+
+    record Stats(double min, double max, double mean, int samples) {
+    }
+}
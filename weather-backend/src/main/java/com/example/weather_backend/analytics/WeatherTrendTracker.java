@@ -0,0 +1,83 @@
+package com.example.weather_backend.analytics;
+
+import com.example.weather_backend.cache.LocationKey;
+import com.example.weather_backend.dto.AirQualityComponents;
+import com.example.weather_backend.dto.OwmAirPollutionResponseDto;
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+import com.example.weather_backend.dto.WeatherTrendsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps rolling temperature, pressure and air-quality aggregates per location in memory,
+ * fed by the observations {@code WeatherService.fetchAllWeatherData} already retrieves.
+ */
+@Component
+public class WeatherTrendTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherTrendTracker.class);
+
+    private final Map<String, LocationTrends> locations = new ConcurrentHashMap<>();
+    private final int maxLocations;
+    private final AtomicBoolean capacityWarningLogged = new AtomicBoolean();
+
+    public WeatherTrendTracker(@Value("${weather.trends.max-locations:10000}") int maxLocations) {
+        this.maxLocations = maxLocations;
+    }
+
+    public void record(double lat, double lon, String resolvedName,
+                       OwmCurrentWeatherResponseDto current, OwmAirPollutionResponseDto.AirPollutionData airQuality) {
+        LocationTrends trends = trendsFor(lat, lon);
+        if (trends == null) {
+            return;
+        }
+        if (current != null && current.getMain() != null) {
+            trends.recordWeather(resolvedName, observedMillis(current.getDt()),
+                    current.getMain().getTemp(), current.getMain().getPressure());
+        }
+        if (airQuality != null && airQuality.getMain() != null) {
+            AirQualityComponents components = airQuality.getComponents();
+            double pm25 = components != null ? components.get(AirQualityComponents.Pollutant.PM2_5) : Double.NaN;
+            trends.recordAirQuality(observedMillis(airQuality.getDt()), airQuality.getMain().getAqi(), pm25);
+        }
+    }
+
+    /**
+     * Trends for the location, or null if it has never been observed.
+     */
+    public WeatherTrendsDto getTrends(double lat, double lon) {
+        LocationTrends trends = locations.get(LocationKey.of(lat, lon));
+        return trends != null ? trends.snapshot(System.currentTimeMillis()) : null;
+    }
+
+    public List<WeatherTrendsDto> getAllTrends() {
+        long now = System.currentTimeMillis();
+        return locations.values().stream().map(trends -> trends.snapshot(now)).toList();
+    }
+
+    private LocationTrends trendsFor(double lat, double lon) {
+        String key = LocationKey.of(lat, lon);
+        LocationTrends trends = locations.get(key);
+        if (trends != null) {
+            return trends;
+        }
+        if (locations.size() >= maxLocations) {
+            if (capacityWarningLogged.compareAndSet(false, true)) {
+                logger.warn("Trend tracking limit of {} locations reached; new locations will not be tracked.", maxLocations);
+            }
+            return null;
+        }
+        return locations.computeIfAbsent(key, k -> new LocationTrends(k, lat, lon));
+    }
+
+    private static long observedMillis(long unixSeconds) {
+        return unixSeconds > 0 ? unixSeconds * 1000 : System.currentTimeMillis();
+    }
+}
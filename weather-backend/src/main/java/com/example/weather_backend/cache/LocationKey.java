@@ -0,0 +1,24 @@
+package com.example.weather_backend.cache;
+
+import java.util.Locale;
+
+/**
+ * The one definition of location identity: coordinates rounded to 2 decimals (a ~1km grid), so nearby
+ * lookups share an entry. Cache keys, trends, nowcast models and subscription feeds all use it, so
+ * they keep agreeing on which location a coordinate belongs to.
+ */
+public final class LocationKey {
+
+    private LocationKey() {
+    }
+
+    // "lat,lon", e.g. "51.51,-0.13"
+    public static String of(double lat, double lon) {
+        return String.format(Locale.ROOT, "%.2f,%.2f", lat, lon);
+    }
+
+    // Cache key for one kind of data at a location, e.g. "current:51.51,-0.13"
+    public static String of(String kind, double lat, double lon) {
+        return kind + ":" + of(lat, lon);
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.weather_backend.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Weather/geocoding cache whose payloads live off-heap in a memory-mapped snapshot file.
+ * <p>
+ * Entries are appended as length-prefixed records (timestamps, key, JSON payload) after a small
+ * versioned header, and only the key -> slot index is kept on the heap. Since the file is mapped,
+ * the OS keeps the written pages, so after a restart we just re-scan the record headers to rebuild
+ * the index, skipping expired entries and anything written under a different format/schema version.
+ */
+@Component
+public class OffHeapWeatherCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapWeatherCache.class);
+
+    // Header: magic(8) + format version(4) + schema version(4) + committed end offset(8) + reserved(8)
+    private static final long MAGIC = 0x5758434143484531L; // "WXCACHE1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int FORMAT_VERSION_POS = 8;
+    private static final int SCHEMA_VERSION_POS = 12;
+    private static final int END_OFFSET_POS = 16;
+
+    // Record: marker(4) + storedAt(8) + expiresAt(8) + keyLength(4) + valueLength(4) + key + value
+    private static final int RECORD_MARKER = 0x57524543; // "WREC"
+    private static final int RECORD_OVERHEAD = 28;
+    private static final int MAX_CAPACITY_MB = 2047; // offsets are ints and a single mapping is capped at 2 GB
+
+    private final ObjectMapper objectMapper;
+    private boolean enabled; // also cleared when another instance holds the snapshot file
+    private final Path snapshotPath;
+    private final int capacityBytes;
+    private final int schemaVersion;
+
+    private final Map<String, Slot> index = new ConcurrentHashMap<>();
+    // Readers copy bytes out under the read lock; appends and compaction move data under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private FileLock fileLock;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    private record Slot(int recordOffset, int keyLength, int valueLength, long storedAtMillis, long expiresAtMillis) {
+        int valueOffset() {
+            return recordOffset + RECORD_OVERHEAD + keyLength;
+        }
+
+        int recordLength() {
+            return RECORD_OVERHEAD + keyLength + valueLength;
+        }
+    }
+
+    public OffHeapWeatherCache(ObjectMapper objectMapper,
+                               @Value("${weather.cache.enabled:true}") boolean enabled,
+                               @Value("${weather.cache.snapshot-path:cache/weather-cache.bin}") String snapshotPath,
+                               @Value("${weather.cache.capacity-mb:64}") int capacityMb,
+                               @Value("${weather.cache.schema-version:1}") int schemaVersion) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.snapshotPath = Path.of(snapshotPath);
+        if (capacityMb < 1 || capacityMb > MAX_CAPACITY_MB) {
+            throw new IllegalArgumentException("weather.cache.capacity-mb must be between 1 and " + MAX_CAPACITY_MB + ", was " + capacityMb);
+        }
+        this.capacityBytes = capacityMb * 1024 * 1024;
+        this.schemaVersion = schemaVersion;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            logger.info("Off-heap weather cache disabled.");
+            return;
+        }
+        long started = System.nanoTime();
+        Path parent = snapshotPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(snapshotPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Two instances appending to the same snapshot would overwrite each other's records and end offset
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null; // held by another cache in this JVM
+        }
+        if (fileLock == null) {
+            logger.warn("Cache snapshot {} is in use by another instance; off-heap weather cache disabled. "
+                    + "Give each instance its own weather.cache.snapshot-path.", snapshotPath.toAbsolutePath());
+            channel.close();
+            channel = null;
+            enabled = false;
+            return;
+        }
+        boolean existing = channel.size() >= HEADER_SIZE;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+
+        if (existing && hasCompatibleHeader()) {
+            loadIndex();
+        } else {
+            if (existing) {
+                logger.warn("Discarding incompatible cache snapshot at {} (expected format {} / schema {}).",
+                        snapshotPath, FORMAT_VERSION, schemaVersion);
+            }
+            reset();
+        }
+        logger.info("Off-heap weather cache ready at {} with {} live entries ({} / {} bytes used) in {} ms",
+                snapshotPath, index.size(), writePosition, capacityBytes, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+            fileLock.release();
+            channel.close();
+            channel = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the cached value for the key, or null if it is absent, expired or cannot be read back
+     * into the requested type (e.g. a DTO changed without bumping the schema version).
+     */
+    public <T> T get(String key, Class<T> type) {
+        return read(key, type, System.currentTimeMillis());
+    }
+
+    /**
+     * Like {@link #get} but also returns entries that expired less than {@code maxStaleness} ago,
+     * as long as compaction has not reclaimed them yet. Used to answer requests shed under overload.
+     */
+    public <T> T getStale(String key, Class<T> type, Duration maxStaleness) {
+        return read(key, type, System.currentTimeMillis() - maxStaleness.toMillis());
+    }
+
+    /**
+     * Whether an unexpired entry exists, without reading it.
+     */
+    public boolean isFresh(String key) {
+        if (!enabled) {
+            return false;
+        }
+        Slot slot = index.get(key);
+        return slot != null && slot.expiresAtMillis() > System.currentTimeMillis();
+    }
+
+    private <T> T read(String key, Class<T> type, long expiredAfterMillis) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] payload;
+        Slot slot;
+        lock.readLock().lock();
+        try {
+            slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (slot.expiresAtMillis() <= expiredAfterMillis) {
+                return null;
+            }
+            payload = new byte[slot.valueLength()];
+            buffer.get(slot.valueOffset(), payload);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (IOException e) {
+            logger.warn("Dropping unreadable cache entry '{}' as {}: {}", key, type.getSimpleName(), e.getMessage());
+            index.remove(key, slot);
+            return null;
+        }
+    }
+
+    public void put(String key, Object value, Duration ttl) {
+        if (!enabled || value == null) {
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes;
+        try {
+            valueBytes = objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            logger.warn("Could not serialize cache entry '{}': {}", key, e.getMessage());
+            return;
+        }
+        int recordLength = RECORD_OVERHEAD + keyBytes.length + valueBytes.length;
+        if (recordLength > capacityBytes - HEADER_SIZE) {
+            logger.warn("Cache entry '{}' ({} bytes) exceeds snapshot capacity, not caching.", key, recordLength);
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            if (writePosition + recordLength > capacityBytes) {
+                compact();
+                if (writePosition + recordLength > capacityBytes) {
+                    logger.warn("Cache snapshot full after compaction, not caching '{}'.", key);
+                    return;
+                }
+            }
+            int offset = writePosition;
+            buffer.putInt(offset, RECORD_MARKER);
+            buffer.putLong(offset + 4, now);
+            buffer.putLong(offset + 12, now + ttl.toMillis());
+            buffer.putInt(offset + 20, keyBytes.length);
+            buffer.putInt(offset + 24, valueBytes.length);
+            buffer.put(offset + RECORD_OVERHEAD, keyBytes);
+            buffer.put(offset + RECORD_OVERHEAD + keyBytes.length, valueBytes);
+            writePosition += recordLength;
+            // Commit the record only once its bytes are fully written
+            buffer.putLong(END_OFFSET_POS, writePosition);
+            index.put(key, new Slot(offset, keyBytes.length, valueBytes.length, now, now + ttl.toMillis()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private boolean hasCompatibleHeader() {
+        return buffer.getLong(0) == MAGIC
+                && buffer.getInt(FORMAT_VERSION_POS) == FORMAT_VERSION
+                && buffer.getInt(SCHEMA_VERSION_POS) == schemaVersion;
+    }
+
+    private void reset() {
+        index.clear();
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(FORMAT_VERSION_POS, FORMAT_VERSION);
+        buffer.putInt(SCHEMA_VERSION_POS, schemaVersion);
+        buffer.putLong(END_OFFSET_POS, HEADER_SIZE);
+        writePosition = HEADER_SIZE;
+    }
+
+    // Rebuilds the index from record headers only; payloads stay untouched in the mapped file
+    private void loadIndex() {
+        long committedEnd = buffer.getLong(END_OFFSET_POS);
+        if (committedEnd < HEADER_SIZE || committedEnd > capacityBytes) {
+            logger.warn("Cache snapshot at {} has an invalid end offset {}, starting empty.", snapshotPath, committedEnd);
+            reset();
+            return;
+        }
+        int end = (int) committedEnd;
+        long now = System.currentTimeMillis();
+        int position = HEADER_SIZE;
+        while (position + RECORD_OVERHEAD <= end && buffer.getInt(position) == RECORD_MARKER) {
+            long storedAt = buffer.getLong(position + 4);
+            long expiresAt = buffer.getLong(position + 12);
+            int keyLength = buffer.getInt(position + 20);
+            int valueLength = buffer.getInt(position + 24);
+            if (keyLength < 0 || valueLength < 0 || (long) position + RECORD_OVERHEAD + keyLength + valueLength > end) {
+                break; // truncated tail, keep what we have
+            }
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + RECORD_OVERHEAD, keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            // Later records supersede earlier ones for the same key
+            if (expiresAt > now) {
+                index.put(key, new Slot(position, keyLength, valueLength, storedAt, expiresAt));
+            } else {
+                index.remove(key);
+            }
+            position += RECORD_OVERHEAD + keyLength + valueLength;
+        }
+        // Expired records are left in place and reclaimed by the next compaction, keeping startup a header scan
+        writePosition = position;
+        buffer.putLong(END_OFFSET_POS, writePosition);
+    }
+
+    // Slides live records down over expired/superseded ones; caller must hold the write lock (or be in open())
+    private void compact() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Slot>> live = new ArrayList<>();
+        for (Map.Entry<String, Slot> entry : index.entrySet()) {
+            if (entry.getValue().expiresAtMillis() > now) {
+                live.add(entry);
+            }
+        }
+        live.sort(Comparator.comparingInt(entry -> entry.getValue().recordOffset()));
+
+        index.clear();
+        int position = HEADER_SIZE;
+        for (Map.Entry<String, Slot> entry : live) {
+            Slot slot = entry.getValue();
+            if (slot.recordOffset() != position) {
+                // Destination never overtakes the source since records are processed in offset order
+                byte[] record = new byte[slot.recordLength()];
+                buffer.get(slot.recordOffset(), record);
+                buffer.put(position, record);
+            }
+            index.put(entry.getKey(), new Slot(position, slot.keyLength(), slot.valueLength(),
+                    slot.storedAtMillis(), slot.expiresAtMillis()));
+            position += slot.recordLength();
+        }
+        int reclaimed = writePosition - position;
+        writePosition = position;
+        buffer.putLong(END_OFFSET_POS, writePosition);
+        if (reclaimed > 0) {
+            logger.info("Compacted weather cache snapshot: {} live entries, {} bytes reclaimed.", index.size(), reclaimed);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.weather_backend.cluster;
+
+import java.util.function.Supplier;
+
+/**
+ * Cluster-wide tier sitting between the node-local cache and OpenWeatherMap.
+ * Implementations decide which node is allowed to call the loader for a given key, and
+ * concurrent loads of one key on that node share a single loader call.
+ * Selected with {@code weather.cluster.mode} ({@code local} or {@code peer}).
+ */
+public interface ClusterCacheTier {
+
+    /**
+     * Resolves the value for a cache key, either by running the loader on this node
+     * or by delegating to the node that owns the key.
+     */
+    <T> T load(String cacheKey, Class<T> type, Supplier<T> loader);
+}
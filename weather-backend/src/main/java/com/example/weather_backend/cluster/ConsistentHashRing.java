@@ -0,0 +1,74 @@
+package com.example.weather_backend.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping cache keys to the node that owns them.
+ * Each node is placed at several virtual points so keys spread evenly and
+ * adding/removing a node only moves roughly 1/N of the keys.
+ */
+public class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final int nodeCount;
+
+    public ConsistentHashRing(List<String> nodes, int virtualNodesPerNode) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Consistent-hash ring needs at least one node");
+        }
+        Set<String> distinct = new LinkedHashSet<>(nodes);
+        for (String node : distinct) {
+            for (int i = 0; i < virtualNodesPerNode; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+        this.nodeCount = distinct.size();
+    }
+
+    public String ownerOf(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Distinct nodes in ring order starting at the key's owner; used to fail over
+     * to the next node deterministically when the owner is unreachable.
+     */
+    public List<String> preferenceList(String key) {
+        Set<String> ordered = new LinkedHashSet<>();
+        long hash = hash(key);
+        for (String node : ring.tailMap(hash, true).values()) {
+            if (ordered.add(node) && ordered.size() == nodeCount) {
+                return new ArrayList<>(ordered);
+            }
+        }
+        for (String node : ring.headMap(hash, false).values()) {
+            if (ordered.add(node) && ordered.size() == nodeCount) {
+                break;
+            }
+        }
+        return new ArrayList<>(ordered);
+    }
+
+    // FNV-1a followed by a 64-bit finalizer so similar keys (e.g. nearby coordinates) scatter well
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.weather_backend.cluster;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-key request coalescing for the node that runs a loader: while a load for a key is in flight,
+ * concurrent misses for the same key wait for it and share its result (or exception) instead of
+ * calling OpenWeatherMap again. Nothing is kept once the load completes; caching stays with
+ * {@link com.example.weather_backend.cache.OffHeapWeatherCache}.
+ */
+final class InFlightLoads {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    <T> T load(String cacheKey, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(cacheKey, mine);
+        if (existing != null) {
+            return (T) join(existing);
+        }
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    // Followers rethrow the leader's exception as is, so callers map OWM errors the same way
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.weather_backend.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+// Single-node default: every key is owned locally
+@Component
+@ConditionalOnProperty(name = "weather.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class LocalCacheTier implements ClusterCacheTier {
+
+    private final InFlightLoads inFlight = new InFlightLoads();
+
+    @Override
+    public <T> T load(String cacheKey, Class<T> type, Supplier<T> loader) {
+        return inFlight.load(cacheKey, loader);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.weather_backend.cluster;
+
+import com.example.weather_backend.controller.ClusterController;
+import com.example.weather_backend.upstream.Deadline;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Cluster tier where each location key has exactly one owning node on a consistent-hash ring.
+ * Non-owners ask the owner over HTTP ({@link ClusterController}) instead of calling OpenWeatherMap,
+ * so a city is fetched upstream once per TTL for the whole cluster rather than once per replica.
+ * Concurrent misses for a key on the owner share a single upstream call.
+ * <p>
+ * If the owner cannot be connected to, the next live node on the ring takes over, which keeps
+ * ownership deterministic across the cluster. An owner that accepted the call but answers too slowly
+ * fails the load instead, so a key is never fetched upstream by two nodes at once. HTTP error
+ * responses from the owner (e.g. OWM 404/429) are passed through unchanged.
+ * <p>
+ * Delegations made while serving a request wait at most until its {@link Deadline}, and the
+ * remaining budget is sent along so the owner's upstream retries stop at the same point.
+ */
+@Component
+@ConditionalOnProperty(name = "weather.cluster.mode", havingValue = "peer")
+public class PeerDelegatingCacheTier implements ClusterCacheTier {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerDelegatingCacheTier.class);
+
+    public static final String ENTRY_PATH = "/internal/cluster/entry";
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+    // Milliseconds left of the calling node's request deadline; the owner works within it instead of a fresh budget
+    public static final String DEADLINE_HEADER = "X-Cluster-Deadline-Ms";
+
+    // Set while serving a peer request, so a node never re-delegates a key it was asked to own
+    private static final ThreadLocal<Boolean> servingPeer = ThreadLocal.withInitial(() -> false);
+
+    private final String selfUrl;
+    private final byte[] secret;
+    private final ConsistentHashRing ring;
+    private final RestTemplate peerRestTemplate;
+    // Peer calls block on RestTemplate I/O; running them on virtual threads lets the caller stop at its deadline
+    private final ExecutorService peerCalls = Executors.newVirtualThreadPerTaskExecutor();
+    // Only local loads are coalesced: a peer-served load never waits on one of this node's delegations
+    private final InFlightLoads inFlight = new InFlightLoads();
+
+    public PeerDelegatingCacheTier(RestTemplateBuilder restTemplateBuilder,
+                                   @Value("${weather.cluster.self-url}") String selfUrl,
+                                   @Value("${weather.cluster.nodes}") String nodes,
+                                   @Value("${weather.cluster.secret:}") String secret,
+                                   @Value("${weather.cluster.virtual-nodes:128}") int virtualNodes,
+                                   @Value("${weather.cluster.peer-connect-timeout:500ms}") Duration connectTimeout,
+                                   @Value("${weather.cluster.peer-read-timeout:10s}") Duration readTimeout) {
+        List<String> nodeUrls = Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(PeerDelegatingCacheTier::normalize)
+                .toList();
+        this.selfUrl = normalize(selfUrl);
+        if (!nodeUrls.contains(this.selfUrl)) {
+            throw new IllegalStateException("weather.cluster.self-url " + selfUrl + " is not listed in weather.cluster.nodes");
+        }
+        if (secret.isBlank()) {
+            throw new IllegalStateException("weather.cluster.secret must be set in peer mode");
+        }
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.ring = new ConsistentHashRing(nodeUrls, virtualNodes);
+        this.peerRestTemplate = restTemplateBuilder
+                .defaultHeader(SECRET_HEADER, secret)
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .build();
+        logger.info("Peer cluster cache tier enabled: self={}, nodes={}", this.selfUrl, nodeUrls);
+    }
+
+    @Override
+    public <T> T load(String cacheKey, Class<T> type, Supplier<T> loader) {
+        if (servingPeer.get()) {
+            return inFlight.load(cacheKey, loader);
+        }
+        ResourceAccessException lastFailure = null;
+        for (String node : ring.preferenceList(cacheKey)) {
+            if (node.equals(selfUrl)) {
+                return inFlight.load(cacheKey, loader);
+            }
+            URI uri = UriComponentsBuilder.fromHttpUrl(node + ENTRY_PATH)
+                    .queryParam("key", cacheKey)
+                    .encode()
+                    .build()
+                    .toUri();
+            try {
+                logger.debug("Delegating {} to owner {}", cacheKey, node);
+                return fetchFromPeer(node, uri, type);
+            } catch (ResourceAccessException e) {
+                if (!isConnectFailure(e)) {
+                    // The owner accepted the call and may still be loading the key: fetching it here too would
+                    // mean two nodes calling OWM for one key, so a read timeout fails this load instead
+                    throw e;
+                }
+                logger.warn("Cluster peer {} unreachable for {}: {}. Trying next node on the ring.", node, cacheKey, e.getMessage());
+                lastFailure = e;
+            }
+        }
+        throw lastFailure != null ? lastFailure : new IllegalStateException("No cluster node available for " + cacheKey);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        peerCalls.shutdownNow();
+    }
+
+    // Bounded by the current request's Deadline rather than only the (longer) peer read timeout
+    private <T> T fetchFromPeer(String node, URI uri, Class<T> type) {
+        long remainingNanos = Deadline.remainingNanos();
+        if (remainingNanos == Long.MAX_VALUE) {
+            return peerRestTemplate.getForObject(uri, type);
+        }
+        if (remainingNanos <= 0) {
+            throw new ResourceAccessException("Request deadline passed before asking cluster peer " + node);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(DEADLINE_HEADER, Long.toString(TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+        Future<T> response = peerCalls.submit(() -> peerRestTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), type).getBody());
+        try {
+            return response.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            response.cancel(true);
+            throw new ResourceAccessException("Cluster peer " + node + " did not answer within the request deadline");
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for cluster peer " + node, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Cluster peer " + node + " call failed", e.getCause());
+        }
+    }
+
+    /**
+     * Whether a request presenting this {@link #SECRET_HEADER} value comes from a cluster member.
+     */
+    public boolean isClusterMember(String presentedSecret) {
+        return presentedSecret != null
+                && MessageDigest.isEqual(secret, presentedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isOwner(String cacheKey) {
+        return ring.ownerOf(cacheKey).equals(selfUrl);
+    }
+
+    /**
+     * Runs the action as the owner of whatever keys it touches, i.e. without further delegation.
+     */
+    public <T> T serveAsOwner(Supplier<T> action) {
+        servingPeer.set(true);
+        try {
+            return action.get();
+        } finally {
+            servingPeer.remove();
+        }
+    }
+
+    // Refused, unresolvable or timed out while connecting: the request never reached the owner
+    private static boolean isConnectFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException
+                    || cause instanceof UnknownHostException
+                    || cause instanceof HttpConnectTimeoutException
+                    || (cause instanceof SocketTimeoutException && "Connect timed out".equalsIgnoreCase(cause.getMessage()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.weather_backend.controller;
+
+import com.example.weather_backend.cluster.PeerDelegatingCacheTier;
+import com.example.weather_backend.exception.WeatherServiceException;
+import com.example.weather_backend.service.WeatherService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+// Internal endpoint peers call to have this node (the key owner) resolve a cache entry.
+// Only callers presenting the shared cluster secret are served: the caller already passed admission
+// control for the originating request, so this endpoint is not limited again.
+@RestController
+@ConditionalOnProperty(name = "weather.cluster.mode", havingValue = "peer")
+public class ClusterController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterController.class);
+    private final PeerDelegatingCacheTier clusterTier;
+    private final WeatherService weatherService;
+
+    public ClusterController(PeerDelegatingCacheTier clusterTier, WeatherService weatherService) {
+        this.clusterTier = clusterTier;
+        this.weatherService = weatherService;
+    }
+
+    @GetMapping(PeerDelegatingCacheTier.ENTRY_PATH)
+    public ResponseEntity<Object> getEntry(@RequestParam String key,
+                                           @RequestHeader(name = PeerDelegatingCacheTier.SECRET_HEADER, required = false) String secret) {
+        if (!clusterTier.isClusterMember(secret)) {
+            logger.warn("Rejected cluster entry request for {} without a valid cluster secret", key);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!clusterTier.isOwner(key)) {
+            // Happens during failover or when node lists differ between replicas
+            logger.info("Serving cluster entry {} although this node is not its ring owner", key);
+        }
+        Object value = clusterTier.serveAsOwner(() -> weatherService.loadForPeer(key));
+        return value != null ? ResponseEntity.ok(value) : ResponseEntity.noContent().build();
+    }
+
+    // Pass upstream HTTP errors through so the calling node maps them exactly as if it had called OWM itself
+    @ExceptionHandler(HttpStatusCodeException.class)
+    public ResponseEntity<String> handleUpstreamError(HttpStatusCodeException e) {
+        HttpHeaders headers = new HttpHeaders();
+        if (e.getResponseHeaders() != null) {
+            // Retry-After on a 429 in particular, so the calling node backs off like it would against OWM
+            headers.putAll(e.getResponseHeaders());
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            headers.remove(HttpHeaders.CONNECTION);
+        }
+        return ResponseEntity.status(e.getStatusCode()).headers(headers).body(e.getResponseBodyAsString());
+    }
+
+    @ExceptionHandler(WeatherServiceException.class)
+    public ResponseEntity<String> handleServiceError(WeatherServiceException e) {
+        return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+    }
+
+    // The caller's forwarded deadline ran out while this node was still loading the key
+    @ExceptionHandler(ResourceAccessException.class)
+    public ResponseEntity<String> handleTimeout(ResourceAccessException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadKey(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.weather_backend.controller;
+
+import com.example.weather_backend.cluster.PeerDelegatingCacheTier;
+import com.example.weather_backend.upstream.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Starts the per-request time budget that upstream retries are measured against
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final Duration requestTimeout;
+
+    public RequestDeadlineFilter(@Value("${weather.request.timeout:10s}") Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Deadline.start(timeoutFor(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.clear();
+        }
+    }
+
+    // A peer delegating a key passes what is left of its own deadline; it can only shorten ours
+    private Duration timeoutFor(HttpServletRequest request) {
+        String peerRemaining = request.getHeader(PeerDelegatingCacheTier.DEADLINE_HEADER);
+        if (peerRemaining != null) {
+            try {
+                Duration remaining = Duration.ofMillis(Math.max(0, Long.parseLong(peerRemaining.trim())));
+                return remaining.compareTo(requestTimeout) < 0 ? remaining : requestTimeout;
+            } catch (NumberFormatException ignored) {
+                // Fall back to the full budget
+            }
+        }
+        return requestTimeout;
+    }
+}
@@ -1,15 +1,30 @@
 package com.example.weather_backend.controller;
 
+import com.example.weather_backend.admission.AdaptiveConcurrencyLimiter;
+import com.example.weather_backend.analytics.WeatherTrendTracker;
 import com.example.weather_backend.dto.ComprehensiveWeatherResponseDto;
 import com.example.weather_backend.dto.CoordDto;
+import com.example.weather_backend.dto.NowcastResponseDto;
+import com.example.weather_backend.dto.WeatherTrendsDto;
 import com.example.weather_backend.exception.WeatherServiceException;
+import com.example.weather_backend.nowcast.NowcastEngine;
 import com.example.weather_backend.service.WeatherService;
+import com.example.weather_backend.subscription.WeatherSubscriptionHub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus; // Import HttpStatus
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/weather")
@@ -18,9 +33,27 @@ public class WeatherController {
 
     private static final Logger logger = LoggerFactory.getLogger(WeatherController.class);
     private final WeatherService weatherService;
+    private final WeatherTrendTracker trendTracker;
+    private final NowcastEngine nowcastEngine;
+    private final WeatherSubscriptionHub subscriptionHub;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Value("${weather.subscriptions.max-locations-per-stream:10}")
+    private int maxLocationsPerStream;
+
+    @Value("${weather.admission.stale-max-age:6h}")
+    private Duration staleMaxAge;
+
+    @Value("${weather.admission.retry-after:1s}")
+    private Duration overloadRetryAfter;
 
-    public WeatherController(WeatherService weatherService) {
+    public WeatherController(WeatherService weatherService, WeatherTrendTracker trendTracker, NowcastEngine nowcastEngine,
+                             WeatherSubscriptionHub subscriptionHub, AdaptiveConcurrencyLimiter concurrencyLimiter) {
         this.weatherService = weatherService;
+        this.trendTracker = trendTracker;
+        this.nowcastEngine = nowcastEngine;
+        this.subscriptionHub = subscriptionHub;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     @GetMapping("/location")
@@ -42,31 +75,174 @@ public class WeatherController {
         // if (hasCity && hasCoords) { logger.debug("Both city and coords provided, using coordinates."); }
 
         try {
-            ComprehensiveWeatherResponseDto response;
-            if (hasCoords) {
-                logger.debug("Fetching weather using coordinates: lat={}, lon={}", lat, lon);
-                // Pass null for geocodingResult as we started with coordinates
-                response = weatherService.fetchAllWeatherData(lat, lon, null);
-                // Enrich basic location info if needed (if service didn't fully populate)
-                if (response.getLocationInfo() != null && response.getLocationInfo().getResolvedName() == null) {
-                     response.getLocationInfo().setResolvedName(String.format("Coordinates [%.2f, %.2f]", lat, lon));
-                }
-            } else {
-                // Fetch using city name (requires geocoding first)
-                logger.debug("Fetching weather using city: {}", city);
-                CoordDto coords = weatherService.getCoordinatesForCity(city); // Get coords AND resolved name/country
-                // Pass the full geocoding result to the main fetch method
-                response = weatherService.fetchAllWeatherData(coords.getLat(), coords.getLon(), coords);
-            }
+            ComprehensiveWeatherResponseDto response = fetchWithAdmission(city, lat, lon, hasCoords);
             logger.info("Successfully fetched weather data for request.");
             return ResponseEntity.ok(response);
 
         } catch (WeatherServiceException e) {
              logger.error("WeatherServiceException caught in controller: {} (Status: {})", e.getMessage(), e.getStatus());
-             throw new ResponseStatusException(e.getStatus(), e.getMessage(), e);
+             throw toResponseStatusException(e);
+        } catch (ResponseStatusException e) {
+            throw e; // already mapped, e.g. shed under overload (counted by the limiter, not an error)
         } catch (Exception e) {
             logger.error("Unexpected error in getComprehensiveWeather: {}", e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected internal error occurred.", e);
         }
     }
+
+    // Server-sent events instead of polling /location: a full snapshot per location, then only changed sections
+    @GetMapping(path = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam MultiValueMap<String, String> params) {
+
+        // Read raw so values keep their commas ("London,GB", "lat,lon"); List<String> binding would split them
+        List<String> cities = params.getOrDefault("city", List.of());
+        List<String> coordinates = params.getOrDefault("location", List.of()); // "lat,lon", repeatable
+        if (cities.isEmpty() && coordinates.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Please provide at least one 'city' or 'location' (lat,lon) to subscribe to.");
+        }
+        if (cities.size() + coordinates.size() > maxLocationsPerStream) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxLocationsPerStream + " locations can be subscribed per stream.");
+        }
+
+        try {
+            List<CoordDto> locations = new ArrayList<>();
+            for (String value : coordinates) {
+                locations.add(parseLocation(value));
+            }
+            for (String name : cities) {
+                if (name.trim().isEmpty()) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "City names must not be empty.");
+                }
+                locations.add(weatherService.getCoordinatesForCity(name)); // cached, so resubscribing is cheap
+            }
+            logger.info("Opening weather subscription for {} location(s)", locations.size());
+            return subscriptionHub.subscribe(locations);
+        } catch (WeatherServiceException e) {
+            logger.error("WeatherServiceException caught in controller: {} (Status: {})", e.getMessage(), e.getStatus());
+            throw toResponseStatusException(e);
+        }
+    }
+
+    // Rolling aggregates are served from memory; locations only appear once they have been fetched
+    @GetMapping("/trends")
+    public ResponseEntity<List<WeatherTrendsDto>> getTrends(
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon) {
+
+        if (lat == null && lon == null) {
+            return ResponseEntity.ok(trendTracker.getAllTrends());
+        }
+        if (lat == null || lon == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Please provide both 'lat' and 'lon', or neither to list all tracked locations.");
+        }
+        WeatherTrendsDto trends = trendTracker.getTrends(lat, lon);
+        if (trends == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("No observations tracked yet for [%.2f, %.2f].", lat, lon));
+        }
+        return ResponseEntity.ok(List.of(trends));
+    }
+
+    // Local 0-6h predictions, answered from memory without calling OWM
+    @GetMapping("/nowcast")
+    public ResponseEntity<NowcastResponseDto> getNowcast(@RequestParam double lat, @RequestParam double lon) {
+        NowcastResponseDto nowcast = nowcastEngine.getNowcast(lat, lon);
+        if (nowcast == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("No nowcast model trained yet for [%.2f, %.2f].", lat, lon));
+        }
+        return ResponseEntity.ok(nowcast);
+    }
+
+    // Mean absolute error per horizon against later observations, compared with a persistence baseline
+    @GetMapping("/nowcast/accuracy")
+    public ResponseEntity<List<NowcastResponseDto.HorizonAccuracy>> getNowcastAccuracy() {
+        return ResponseEntity.ok(nowcastEngine.getAccuracy());
+    }
+
+    // Requests answerable from fresh cache skip the concurrency limit and are served from cache only; the
+    // rest need a permit, and when none is left get stale cached data or a fast 503 instead of queueing
+    // behind slow OWM calls. Both overload outcomes are expected under load, so they log at debug and
+    // show up in the weather.admission.requests metric instead.
+    private ComprehensiveWeatherResponseDto fetchWithAdmission(String city, Double lat, Double lon, boolean hasCoords) {
+        CoordDto cachedCoords = hasCoords ? null : weatherService.getCachedCoordinates(city);
+        boolean located = hasCoords || cachedCoords != null;
+        double targetLat = hasCoords ? lat : located ? cachedCoords.getLat() : Double.NaN;
+        double targetLon = hasCoords ? lon : located ? cachedCoords.getLon() : Double.NaN;
+        ComprehensiveWeatherResponseDto cached = located ? weatherService.getCachedWeatherData(targetLat, targetLon, cachedCoords) : null;
+        if (cached != null) {
+            concurrencyLimiter.recordPriority();
+            return hasCoords ? nameCoordinates(cached, lat, lon) : cached;
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+        if (permit == null) {
+            ComprehensiveWeatherResponseDto stale = located ? weatherService.getStaleWeatherData(targetLat, targetLon, cachedCoords, staleMaxAge) : null;
+            if (stale != null) {
+                concurrencyLimiter.recordStale();
+                logger.debug("Concurrency limit {} reached, serving stale cached weather.", concurrencyLimiter.getLimit());
+                return hasCoords ? nameCoordinates(stale, lat, lon) : stale;
+            }
+            logger.debug("Concurrency limit {} reached, rejecting weather request.", concurrencyLimiter.getLimit());
+            throw toResponseStatusException(new WeatherServiceException("The weather service is overloaded. Please try again shortly.",
+                    HttpStatus.SERVICE_UNAVAILABLE, null, Math.max(1, overloadRetryAfter.toSeconds())));
+        }
+        try {
+            return fetch(city, lat, lon, hasCoords);
+        } finally {
+            permit.release();
+        }
+    }
+
+    private ComprehensiveWeatherResponseDto fetch(String city, Double lat, Double lon, boolean hasCoords) {
+        ComprehensiveWeatherResponseDto response;
+        if (hasCoords) {
+            logger.debug("Fetching weather using coordinates: lat={}, lon={}", lat, lon);
+            // Pass null for geocodingResult as we started with coordinates
+            response = nameCoordinates(weatherService.fetchAllWeatherData(lat, lon, null), lat, lon);
+        } else {
+            // Fetch using city name (requires geocoding first)
+            logger.debug("Fetching weather using city: {}", city);
+            CoordDto coords = weatherService.getCoordinatesForCity(city); // Get coords AND resolved name/country
+            // Pass the full geocoding result to the main fetch method
+            response = weatherService.fetchAllWeatherData(coords.getLat(), coords.getLon(), coords);
+        }
+        return response;
+    }
+
+    // Enrich basic location info if needed (if service didn't fully populate)
+    private static ComprehensiveWeatherResponseDto nameCoordinates(ComprehensiveWeatherResponseDto response, double lat, double lon) {
+        if (response.getLocationInfo() != null && response.getLocationInfo().getResolvedName() == null) {
+             response.getLocationInfo().setResolvedName(String.format("Coordinates [%.2f, %.2f]", lat, lon));
+        }
+        return response;
+    }
+
+    private static CoordDto parseLocation(String value) {
+        String[] parts = value.split(",");
+        try {
+            if (parts.length == 2) {
+                double lat = Double.parseDouble(parts[0].trim());
+                double lon = Double.parseDouble(parts[1].trim());
+                if (lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180) {
+                    return new CoordDto(lat, lon, null, null);
+                }
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid location '" + value + "', expected 'lat,lon'.");
+    }
+
+    // Carries the service's Retry-After hint (e.g. upstream quota exceeded) through to the client
+    private static ResponseStatusException toResponseStatusException(WeatherServiceException e) {
+        HttpHeaders headers = new HttpHeaders();
+        if (e.getRetryAfterSeconds() != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        }
+        return new ResponseStatusException(e.getStatus(), e.getMessage(), e) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.example.weather_backend.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Pollutant concentrations (μg/m3) from the Air Pollution API, stored in a fixed-layout double[]
+// instead of a Map<String, Double>. Serializes to the same JSON object, e.g. {"co": 201.94, "no": 0.02, ...}
+@JsonSerialize(using = AirQualityComponents.Serializer.class)
+@JsonDeserialize(using = AirQualityComponents.Deserializer.class)
+public final class AirQualityComponents {
+
+    public enum Pollutant {
+        CO("co"), NO("no"), NO2("no2"), O3("o3"), SO2("so2"), PM2_5("pm2_5"), PM10("pm10"), NH3("nh3");
+
+        private static final Pollutant[] VALUES = values();
+        private final String jsonName;
+
+        Pollutant(String jsonName) {
+            this.jsonName = jsonName;
+        }
+
+        public String getJsonName() {
+            return jsonName;
+        }
+
+        public static Pollutant fromJsonName(String name) {
+            for (Pollutant pollutant : VALUES) {
+                if (pollutant.jsonName.equals(name)) {
+                    return pollutant;
+                }
+            }
+            return null;
+        }
+    }
+
+    // NaN marks a pollutant the API did not report, so it is omitted again on serialization
+    private final double[] values = new double[Pollutant.VALUES.length];
+
+    public AirQualityComponents() {
+        Arrays.fill(values, Double.NaN);
+    }
+
+    public double get(Pollutant pollutant) {
+        return values[pollutant.ordinal()];
+    }
+
+    public boolean has(Pollutant pollutant) {
+        return !Double.isNaN(values[pollutant.ordinal()]);
+    }
+
+    public void set(Pollutant pollutant, double value) {
+        values[pollutant.ordinal()] = value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof AirQualityComponents components && Arrays.equals(values, components.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (Pollutant pollutant : Pollutant.VALUES) {
+            if (has(pollutant)) {
+                builder.append(builder.length() > 1 ? ", " : "").append(pollutant.jsonName).append('=').append(get(pollutant));
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    public static class Serializer extends JsonSerializer<AirQualityComponents> {
+        @Override
+        public void serialize(AirQualityComponents components, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (Pollutant pollutant : Pollutant.VALUES) {
+                if (components.has(pollutant)) {
+                    generator.writeNumberField(pollutant.jsonName, components.get(pollutant));
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    // Streams the object straight into the array; unknown pollutant keys are skipped
+    public static class Deserializer extends JsonDeserializer<AirQualityComponents> {
+        @Override
+        public AirQualityComponents deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                return (AirQualityComponents) context.handleUnexpectedToken(AirQualityComponents.class, parser);
+            }
+            AirQualityComponents components = new AirQualityComponents();
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                JsonToken token = parser.nextToken();
+                Pollutant pollutant = Pollutant.fromJsonName(field);
+                if (pollutant != null && token.isNumeric()) {
+                    components.set(pollutant, parser.getDoubleValue());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return components;
+        }
+    }
+}
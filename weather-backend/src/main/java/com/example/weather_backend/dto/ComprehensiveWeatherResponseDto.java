@@ -18,6 +18,7 @@ public class ComprehensiveWeatherResponseDto {
     private OwmCurrentWeatherResponseDto current; // Data from /weather endpoint
     private List<OwmForecastResponseDto.ForecastItem> forecastList; // List of 3-hour forecasts from /forecast
     private OwmAirPollutionResponseDto.AirPollutionData airQuality; // Data from /air_pollution endpoint
+    private String dataSource; // "owm", "nowcast" when OWM was unavailable and local predictions were served, or "stale-cache" when shed under overload
 
     // NOTE: Alerts are not typically part of the /forecast API response, so removed for now.
 
@@ -0,0 +1,43 @@
+package com.example.weather_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// In-process 0-6h prediction for one location, served by /api/weather/nowcast
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NowcastResponseDto {
+
+    private String locationKey; // "lat,lon" rounded to 2 decimals
+    private String name;
+    private long lastObservation; // unix, UTC - the model is anchored here
+    private String method; // "anchored-forecast" (last OWM forecast shape) or "holt" (damped trend smoothing)
+    private List<Point> points; // hourly, starting now
+    private List<HorizonAccuracy> accuracy; // measured against later observations, all locations
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private long dt; // unix, UTC
+        private double temp;
+        private Double pressure;
+        private Double humidity;
+        private Double windSpeed;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HorizonAccuracy {
+        private int hours;
+        private long samples;
+        private Double modelMae; // mean absolute temperature error, °C
+        private Double persistenceMae; // same for "no change" baseline
+    }
+}
\ No newline at end of file
@@ -4,7 +4,6 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.util.List;
-import java.util.Map;
 
 // Maps the response from OpenWeatherMap Air Pollution API
 @Data
@@ -20,7 +19,7 @@ public class OwmAirPollutionResponseDto {
     public static class AirPollutionData {
         private long dt; // Timestamp
         private MainInfo main;
-        private Map<String, Double> components; // e.g., {"co": 201.94, "no": 0.02, ...}
+        private AirQualityComponents components; // e.g., {"co": 201.94, "no": 0.02, ...}
     }
 
     @Data
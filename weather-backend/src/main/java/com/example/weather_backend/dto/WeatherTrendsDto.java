@@ -0,0 +1,43 @@
+package com.example.weather_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Short-term analytics for one tracked location, served by /api/weather/trends
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeatherTrendsDto {
+
+    private String locationKey; // "lat,lon" rounded to 2 decimals
+    private String name;
+    private double latitude;
+    private double longitude;
+    private long lastObservation; // unix, UTC
+    private int observations;
+
+    private WindowStats temperature1h;
+    private WindowStats temperature24h;
+    private WindowStats temperature7d;
+
+    private Double pressureTendency3h; // hPa change over the last 3 hours
+    private String pressureTrend; // rising, falling, steady
+
+    private Integer currentAqi;
+    private WindowStats aqi24h;
+    private Double pm25Change3h; // μg/m3 change over the last 3 hours
+    private String aqiTrend; // improving, worsening, stable
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WindowStats {
+        private double min;
+        private double max;
+        private double mean;
+        private int samples;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.example.weather_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Pushed to /api/weather/subscribe clients; only the sections that changed since the last push are set
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WeatherUpdateDto {
+
+    private String locationKey; // "lat,lon" rounded to 2 decimals, identifies the subscribed location
+    private long version; // increases with every change of this location
+    private boolean snapshot; // true when all sections are included (first event for a location)
+    private String dataSource; // "owm" or "nowcast", as in ComprehensiveWeatherResponseDto
+    private ComprehensiveWeatherResponseDto.LocationInfo locationInfo;
+    private OwmCurrentWeatherResponseDto current;
+    private List<OwmForecastResponseDto.ForecastItem> forecastList;
+    private OwmAirPollutionResponseDto.AirPollutionData airQuality;
+}
\ No newline at end of file
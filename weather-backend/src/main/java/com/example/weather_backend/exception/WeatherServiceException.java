@@ -5,18 +5,27 @@ import org.springframework.http.HttpStatus;
 // Custom exception for service layer errors
 public class WeatherServiceException extends RuntimeException {
     private final HttpStatus status;
+    private final Long retryAfterSeconds; // Optional hint for the client, e.g. from an upstream 429
 
     public WeatherServiceException(String message, HttpStatus status) {
-        super(message);
-        this.status = status;
+        this(message, status, null, null);
     }
 
     public WeatherServiceException(String message, HttpStatus status, Throwable cause) {
+        this(message, status, cause, null);
+    }
+
+    public WeatherServiceException(String message, HttpStatus status, Throwable cause, Long retryAfterSeconds) {
         super(message, cause);
         this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 
     public HttpStatus getStatus() {
         return status;
     }
+
+    public Long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.example.weather_backend.nowcast;
+
+import com.example.weather_backend.dto.OwmForecastResponseDto;
+
+import java.util.List;
+
+/**
+ * Primitive copy of the last OWM 3-hour forecast for a location, linearly interpolated between items.
+ * Only the shape of the curve is used (see {@link LocationModel}), so it stays useful after it goes stale.
+ */
+final class ForecastCurve {
+
+    private final long[] times;
+    private final double[][] values; // [variable][item]
+
+    private ForecastCurve(long[] times, double[][] values) {
+        this.times = times;
+        this.values = values;
+    }
+
+    static ForecastCurve from(List<OwmForecastResponseDto.ForecastItem> items) {
+        if (items == null || items.size() < 2) {
+            return null;
+        }
+        int n = items.size();
+        long[] times = new long[n];
+        double[][] values = new double[Variable.COUNT][n];
+        for (int i = 0; i < n; i++) {
+            OwmForecastResponseDto.ForecastItem item = items.get(i);
+            times[i] = item.getDt() * 1000;
+            for (Variable variable : Variable.VALUES) {
+                values[variable.ordinal()][i] = variable.of(item.getMain(), item.getWind());
+            }
+        }
+        return new ForecastCurve(times, values);
+    }
+
+    /**
+     * Interpolated value at the given time, or NaN outside the forecast range. The first segment is
+     * extrapolated back by up to one step, since OWM's first slot usually starts after "now".
+     */
+    double valueAt(Variable variable, long timestampMillis) {
+        double[] series = values[variable.ordinal()];
+        long step = times[1] - times[0];
+        if (timestampMillis < times[0]) {
+            if (times[0] - timestampMillis > step) {
+                return Double.NaN;
+            }
+            return series[0] - (series[1] - series[0]) * (times[0] - timestampMillis) / step;
+        }
+        if (timestampMillis > times[times.length - 1]) {
+            return Double.NaN;
+        }
+        int upper = 1;
+        while (times[upper] < timestampMillis) {
+            upper++;
+        }
+        double fraction = (double) (timestampMillis - times[upper - 1]) / (times[upper] - times[upper - 1]);
+        return series[upper - 1] + fraction * (series[upper] - series[upper - 1]);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.weather_backend.nowcast;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Damped-trend (Holt) exponential smoothing for an irregularly sampled series.
+ * The trend is kept per hour so observations arriving at uneven intervals update it consistently.
+ * Not thread-safe: callers synchronize per location.
+ */
+class HoltSeries {
+
+    private static final double HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final double alpha; // level smoothing
+    private final double beta;  // trend smoothing
+    private final double phi;   // trend damping per hour, keeps long horizons from running away
+
+    private double level = Double.NaN;
+    private double trendPerHour;
+    private long lastMillis;
+
+    HoltSeries(double alpha, double beta, double phi) {
+        this.alpha = alpha;
+        this.beta = beta;
+        this.phi = phi;
+    }
+
+    void update(long timestampMillis, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (Double.isNaN(level)) {
+            level = value;
+            trendPerHour = 0;
+            lastMillis = timestampMillis;
+            return;
+        }
+        double hours = (timestampMillis - lastMillis) / HOUR_MILLIS;
+        if (hours <= 0) {
+            return;
+        }
+        double predicted = level + dampedTrend(hours);
+        double newLevel = alpha * value + (1 - alpha) * predicted;
+        trendPerHour = beta * (newLevel - level) / hours + (1 - beta) * trendPerHour * Math.pow(phi, hours);
+        level = newLevel;
+        lastMillis = timestampMillis;
+    }
+
+    double forecast(long timestampMillis) {
+        if (Double.isNaN(level)) {
+            return Double.NaN;
+        }
+        return level + dampedTrend(Math.max(0, (timestampMillis - lastMillis) / HOUR_MILLIS));
+    }
+
+    // Continuous version of trend * (phi + phi^2 + ... + phi^h)
+    private double dampedTrend(double hours) {
+        if (phi >= 1.0) {
+            return trendPerHour * hours;
+        }
+        return trendPerHour * phi * (1 - Math.pow(phi, hours)) / (1 - phi);
+    }
+}
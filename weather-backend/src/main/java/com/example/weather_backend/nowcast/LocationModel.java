@@ -0,0 +1,142 @@
+package com.example.weather_backend.nowcast;
+
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+import com.example.weather_backend.dto.OwmForecastResponseDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nowcast state for one location.
+ * <p>
+ * Predictions anchor the shape of the last known OWM forecast to the latest observation
+ * ({@code observed + forecast(t) - forecast(observedAt)}), which removes the forecast's local bias.
+ * Where no forecast covers the target time, a damped-trend Holt model trained on the observations
+ * is used instead. Issued temperature predictions are kept until they can be scored against the
+ * observations that later arrive for their target times.
+ */
+class LocationModel {
+
+    static final int HORIZON_HOURS = 6;
+    static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long SCORE_TOLERANCE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final int SNAPSHOTS = HORIZON_HOURS + 2; // one issued per hour, kept until all horizons mature
+
+    private final HoltSeries[] holt = new HoltSeries[Variable.COUNT];
+    private final double[] lastObserved = new double[Variable.COUNT];
+    private long lastObservedMillis = Long.MIN_VALUE;
+    private ForecastCurve curve;
+    private OwmCurrentWeatherResponseDto lastCurrent;
+    private String name;
+
+    private final long[] issuedAt = new long[SNAPSHOTS];
+    private final double[][] issuedTemperatures = new double[SNAPSHOTS][HORIZON_HOURS];
+    private final double[] issuedPersistence = new double[SNAPSHOTS];
+    private final int[] scoredHorizons = new int[SNAPSHOTS]; // bit h-1 set once horizon h was scored
+    private int nextSnapshot;
+    private long lastIssuedMillis;
+
+    LocationModel(double alpha, double beta, double phi) {
+        for (int i = 0; i < Variable.COUNT; i++) {
+            holt[i] = new HoltSeries(alpha, beta, phi);
+            lastObserved[i] = Double.NaN;
+        }
+    }
+
+    synchronized void train(OwmCurrentWeatherResponseDto current, List<OwmForecastResponseDto.ForecastItem> forecast,
+                            NowcastAccuracy accuracy) {
+        ForecastCurve newCurve = ForecastCurve.from(forecast);
+        if (newCurve != null) {
+            curve = newCurve;
+        }
+        long observedMillis = current.getDt() * 1000;
+        if (observedMillis <= lastObservedMillis) {
+            return; // same observation again, e.g. served from cache
+        }
+        lastCurrent = current;
+        if (current.getName() != null) {
+            name = current.getName();
+        }
+        score(observedMillis, Variable.TEMPERATURE.of(current.getMain(), current.getWind()), accuracy);
+        for (Variable variable : Variable.VALUES) {
+            double value = variable.of(current.getMain(), current.getWind());
+            holt[variable.ordinal()].update(observedMillis, value);
+            lastObserved[variable.ordinal()] = value;
+        }
+        lastObservedMillis = observedMillis;
+        if (observedMillis - lastIssuedMillis >= HOUR_MILLIS) {
+            issue(observedMillis);
+        }
+    }
+
+    synchronized boolean isTrained() {
+        return lastObservedMillis != Long.MIN_VALUE;
+    }
+
+    synchronized double predict(Variable variable, long timestampMillis) {
+        if (lastObservedMillis == Long.MIN_VALUE) {
+            return Double.NaN;
+        }
+        double observed = lastObserved[variable.ordinal()];
+        if (curve != null && !Double.isNaN(observed)) {
+            double from = curve.valueAt(variable, lastObservedMillis);
+            double to = curve.valueAt(variable, timestampMillis);
+            if (!Double.isNaN(from) && !Double.isNaN(to)) {
+                return observed + (to - from);
+            }
+        }
+        return holt[variable.ordinal()].forecast(timestampMillis);
+    }
+
+    synchronized String method(long timestampMillis) {
+        return curve != null && !Double.isNaN(curve.valueAt(Variable.TEMPERATURE, timestampMillis))
+                && !Double.isNaN(curve.valueAt(Variable.TEMPERATURE, lastObservedMillis)) ? "anchored-forecast" : "holt";
+    }
+
+    synchronized long lastObservedMillis() {
+        return lastObservedMillis;
+    }
+
+    synchronized OwmCurrentWeatherResponseDto lastCurrent() {
+        return lastCurrent;
+    }
+
+    synchronized String name() {
+        return name;
+    }
+
+    private void issue(long nowMillis) {
+        int slot = nextSnapshot;
+        issuedAt[slot] = nowMillis;
+        issuedPersistence[slot] = lastObserved[Variable.TEMPERATURE.ordinal()];
+        for (int h = 1; h <= HORIZON_HOURS; h++) {
+            issuedTemperatures[slot][h - 1] = predict(Variable.TEMPERATURE, nowMillis + h * HOUR_MILLIS);
+        }
+        scoredHorizons[slot] = 0;
+        nextSnapshot = (slot + 1) % SNAPSHOTS;
+        lastIssuedMillis = nowMillis;
+    }
+
+    private void score(long observedMillis, double observedTemperature, NowcastAccuracy accuracy) {
+        if (Double.isNaN(observedTemperature)) {
+            return;
+        }
+        for (int slot = 0; slot < SNAPSHOTS; slot++) {
+            if (issuedAt[slot] == 0) {
+                continue;
+            }
+            for (int h = 1; h <= HORIZON_HOURS; h++) {
+                int bit = 1 << (h - 1);
+                long target = issuedAt[slot] + h * HOUR_MILLIS;
+                if ((scoredHorizons[slot] & bit) == 0 && Math.abs(observedMillis - target) <= SCORE_TOLERANCE_MILLIS) {
+                    double predicted = issuedTemperatures[slot][h - 1];
+                    if (!Double.isNaN(predicted)) {
+                        accuracy.record(h, Math.abs(predicted - observedTemperature),
+                                Math.abs(issuedPersistence[slot] - observedTemperature));
+                    }
+                    scoredHorizons[slot] |= bit;
+                }
+            }
+        }
+    }
+}
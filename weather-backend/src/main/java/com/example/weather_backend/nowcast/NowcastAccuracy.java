@@ -0,0 +1,41 @@
+package com.example.weather_backend.nowcast;
+
+import com.example.weather_backend.dto.NowcastResponseDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Running mean absolute temperature error per horizon, for the model and a persistence baseline
+class NowcastAccuracy {
+
+    private final LongAdder[] samples = new LongAdder[LocationModel.HORIZON_HOURS];
+    private final DoubleAdder[] modelError = new DoubleAdder[LocationModel.HORIZON_HOURS];
+    private final DoubleAdder[] persistenceError = new DoubleAdder[LocationModel.HORIZON_HOURS];
+
+    NowcastAccuracy() {
+        for (int i = 0; i < LocationModel.HORIZON_HOURS; i++) {
+            samples[i] = new LongAdder();
+            modelError[i] = new DoubleAdder();
+            persistenceError[i] = new DoubleAdder();
+        }
+    }
+
+    void record(int horizonHours, double modelAbsError, double persistenceAbsError) {
+        samples[horizonHours - 1].increment();
+        modelError[horizonHours - 1].add(modelAbsError);
+        persistenceError[horizonHours - 1].add(persistenceAbsError);
+    }
+
+    List<NowcastResponseDto.HorizonAccuracy> snapshot() {
+        List<NowcastResponseDto.HorizonAccuracy> result = new ArrayList<>(LocationModel.HORIZON_HOURS);
+        for (int i = 0; i < LocationModel.HORIZON_HOURS; i++) {
+            long count = samples[i].sum();
+            result.add(new NowcastResponseDto.HorizonAccuracy(i + 1, count,
+                    count > 0 ? modelError[i].sum() / count : null,
+                    count > 0 ? persistenceError[i].sum() / count : null));
+        }
+        return result;
+    }
+}
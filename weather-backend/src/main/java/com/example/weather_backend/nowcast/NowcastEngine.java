@@ -0,0 +1,203 @@
+package com.example.weather_backend.nowcast;
+
+import com.example.weather_backend.cache.LocationKey;
+import com.example.weather_backend.dto.NowcastResponseDto;
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+import com.example.weather_backend.dto.OwmForecastResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * In-process 0-6h nowcasting. Models are trained incrementally on a background fork-join pool from
+ * the current weather and forecast responses {@code WeatherService} already fetches, and predictions
+ * are answered from memory. Also used as a fallback when OWM is unavailable or over quota.
+ */
+@Component
+public class NowcastEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(NowcastEngine.class);
+    private static final DateTimeFormatter OWM_DT_TXT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final double alpha;
+    private final double beta;
+    private final double phi;
+    private final int maxLocations;
+
+    private final Map<String, LocationModel> models = new ConcurrentHashMap<>();
+    private final NowcastAccuracy accuracy = new NowcastAccuracy();
+    private final ForkJoinPool trainingPool;
+
+    public NowcastEngine(ObjectMapper objectMapper,
+                         @Value("${weather.nowcast.enabled:true}") boolean enabled,
+                         @Value("${weather.nowcast.training-parallelism:2}") int trainingParallelism,
+                         @Value("${weather.nowcast.alpha:0.5}") double alpha,
+                         @Value("${weather.nowcast.beta:0.2}") double beta,
+                         @Value("${weather.nowcast.phi:0.9}") double phi,
+                         @Value("${weather.nowcast.max-locations:10000}") int maxLocations) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.phi = phi;
+        this.maxLocations = maxLocations;
+        this.trainingPool = new ForkJoinPool(trainingParallelism);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        trainingPool.shutdownNow();
+    }
+
+    /**
+     * Queues a training step for the location; returns immediately.
+     */
+    public void observe(double lat, double lon, OwmCurrentWeatherResponseDto current,
+                        List<OwmForecastResponseDto.ForecastItem> forecast) {
+        if (!enabled || current == null || current.getDt() <= 0) {
+            return;
+        }
+        String key = LocationKey.of(lat, lon);
+        LocationModel model = models.get(key);
+        if (model == null) {
+            if (models.size() >= maxLocations) {
+                logger.debug("Nowcast location limit of {} reached, not tracking {}", maxLocations, key);
+                return;
+            }
+            model = models.computeIfAbsent(key, k -> new LocationModel(alpha, beta, phi));
+        }
+        LocationModel target = model;
+        trainingPool.execute(() -> target.train(current, forecast, accuracy));
+    }
+
+    /**
+     * Hourly predictions from now to +6h, or null if the location has no trained model.
+     */
+    public NowcastResponseDto getNowcast(double lat, double lon) {
+        String key = LocationKey.of(lat, lon);
+        LocationModel model = trainedModel(key);
+        if (model == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        List<NowcastResponseDto.Point> points = new ArrayList<>(LocationModel.HORIZON_HOURS + 1);
+        for (int h = 0; h <= LocationModel.HORIZON_HOURS; h++) {
+            long at = now + h * LocationModel.HOUR_MILLIS;
+            points.add(new NowcastResponseDto.Point(at / 1000,
+                    model.predict(Variable.TEMPERATURE, at),
+                    finiteOrNull(model.predict(Variable.PRESSURE, at)),
+                    finiteOrNull(model.predict(Variable.HUMIDITY, at)),
+                    finiteOrNull(model.predict(Variable.WIND_SPEED, at))));
+        }
+        return NowcastResponseDto.builder()
+                .locationKey(key)
+                .name(model.name())
+                .lastObservation(model.lastObservedMillis() / 1000)
+                .method(model.method(now + LocationModel.HORIZON_HOURS * LocationModel.HOUR_MILLIS))
+                .points(points)
+                .accuracy(accuracy.snapshot())
+                .build();
+    }
+
+    public List<NowcastResponseDto.HorizonAccuracy> getAccuracy() {
+        return accuracy.snapshot();
+    }
+
+    /**
+     * Last observed current weather with the main values replaced by the nowcast for now,
+     * or null if the location has no trained model.
+     */
+    public OwmCurrentWeatherResponseDto fallbackCurrent(double lat, double lon) {
+        LocationModel model = trainedModel(LocationKey.of(lat, lon));
+        if (model == null || model.lastCurrent() == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        OwmCurrentWeatherResponseDto current = objectMapper.convertValue(model.lastCurrent(), OwmCurrentWeatherResponseDto.class);
+        current.setDt(now / 1000);
+        if (current.getMain() != null) {
+            double temperature = model.predict(Variable.TEMPERATURE, now);
+            current.getMain().setTemp(temperature);
+            current.getMain().setFeelsLike(temperature);
+            current.getMain().setTempMin(temperature);
+            current.getMain().setTempMax(temperature);
+            roundedOrKeep(model.predict(Variable.PRESSURE, now), current.getMain()::setPressure);
+            roundedOrKeep(model.predict(Variable.HUMIDITY, now), current.getMain()::setHumidity);
+        }
+        double windSpeed = model.predict(Variable.WIND_SPEED, now);
+        if (current.getWind() != null && Double.isFinite(windSpeed)) {
+            current.getWind().setSpeed(Math.max(0, windSpeed));
+        }
+        return current;
+    }
+
+    /**
+     * Hourly forecast items for the next 6 hours in the OWM forecast shape, or null if the location
+     * has no trained model.
+     */
+    public List<OwmForecastResponseDto.ForecastItem> fallbackForecast(double lat, double lon) {
+        LocationModel model = trainedModel(LocationKey.of(lat, lon));
+        if (model == null) {
+            return null;
+        }
+        OwmCurrentWeatherResponseDto lastCurrent = model.lastCurrent();
+        long now = System.currentTimeMillis();
+        List<OwmForecastResponseDto.ForecastItem> items = new ArrayList<>(LocationModel.HORIZON_HOURS);
+        for (int h = 1; h <= LocationModel.HORIZON_HOURS; h++) {
+            long at = now + h * LocationModel.HOUR_MILLIS;
+            OwmCurrentWeatherResponseDto.MainInfo main = new OwmCurrentWeatherResponseDto.MainInfo();
+            double temperature = model.predict(Variable.TEMPERATURE, at);
+            main.setTemp(temperature);
+            main.setFeelsLike(temperature);
+            main.setTempMin(temperature);
+            main.setTempMax(temperature);
+            roundedOrKeep(model.predict(Variable.PRESSURE, at), main::setPressure);
+            roundedOrKeep(model.predict(Variable.HUMIDITY, at), main::setHumidity);
+            OwmCurrentWeatherResponseDto.WindInfo wind = new OwmCurrentWeatherResponseDto.WindInfo();
+            double windSpeed = model.predict(Variable.WIND_SPEED, at);
+            wind.setSpeed(Double.isFinite(windSpeed) ? Math.max(0, windSpeed) : 0);
+
+            OwmForecastResponseDto.ForecastItem item = new OwmForecastResponseDto.ForecastItem();
+            item.setDt(at / 1000);
+            item.setDtTxt(OWM_DT_TXT.format(Instant.ofEpochMilli(at)));
+            item.setMain(main);
+            item.setWind(wind);
+            if (lastCurrent != null) {
+                item.setWeather(lastCurrent.getWeather()); // condition/icon carried over from the last observation
+                item.setClouds(lastCurrent.getClouds());
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    private LocationModel trainedModel(String key) {
+        LocationModel model = models.get(key);
+        return model != null && model.isTrained() ? model : null;
+    }
+
+    private static Double finiteOrNull(double value) {
+        return Double.isFinite(value) ? value : null;
+    }
+
+    private static void roundedOrKeep(double value, IntConsumer setter) {
+        if (Double.isFinite(value)) {
+            setter.accept((int) Math.round(value));
+        }
+    }
+}
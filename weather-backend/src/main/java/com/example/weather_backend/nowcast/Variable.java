@@ -0,0 +1,20 @@
+package com.example.weather_backend.nowcast;
+
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+
+// Quantities the nowcast predicts, as indices into the per-location primitive state
+enum Variable {
+    TEMPERATURE, PRESSURE, HUMIDITY, WIND_SPEED;
+
+    static final Variable[] VALUES = values();
+    static final int COUNT = VALUES.length;
+
+    double of(OwmCurrentWeatherResponseDto.MainInfo main, OwmCurrentWeatherResponseDto.WindInfo wind) {
+        return switch (this) {
+            case TEMPERATURE -> main != null ? main.getTemp() : Double.NaN;
+            case PRESSURE -> main != null && main.getPressure() > 0 ? main.getPressure() : Double.NaN;
+            case HUMIDITY -> main != null ? main.getHumidity() : Double.NaN;
+            case WIND_SPEED -> wind != null ? wind.getSpeed() : Double.NaN;
+        };
+    }
+}
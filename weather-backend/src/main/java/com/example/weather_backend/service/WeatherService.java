@@ -1,7 +1,14 @@
 package com.example.weather_backend.service;
 
+import com.example.weather_backend.analytics.WeatherTrendTracker;
+import com.example.weather_backend.cache.LocationKey;
+import com.example.weather_backend.cache.OffHeapWeatherCache;
+import com.example.weather_backend.cluster.ClusterCacheTier;
 import com.example.weather_backend.dto.*;
 import com.example.weather_backend.exception.WeatherServiceException;
+import com.example.weather_backend.nowcast.NowcastEngine;
+import com.example.weather_backend.upstream.HedgedRequestExecutor;
+import com.example.weather_backend.upstream.RetryExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,6 +20,10 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 @Service
 public class WeatherService {
@@ -20,6 +31,12 @@ public class WeatherService {
     private static final Logger logger = LoggerFactory.getLogger(WeatherService.class);
 
     private final RestTemplate restTemplate;
+    private final OffHeapWeatherCache weatherCache;
+    private final ClusterCacheTier clusterTier;
+    private final HedgedRequestExecutor hedgedExecutor;
+    private final RetryExecutor retryExecutor;
+    private final WeatherTrendTracker trendTracker;
+    private final NowcastEngine nowcastEngine;
 
     @Value("${openweathermap.api.key}")
     private String apiKey;
@@ -36,8 +53,31 @@ public class WeatherService {
     @Value("${openweathermap.api.url.geocoding}")
     private String geocodingApiUrl;
 
-    public WeatherService(RestTemplate restTemplate) {
+    @Value("${weather.cache.ttl.current:10m}")
+    private Duration currentCacheTtl;
+
+    @Value("${weather.cache.ttl.forecast:30m}")
+    private Duration forecastCacheTtl;
+
+    @Value("${weather.cache.ttl.air-pollution:30m}")
+    private Duration airPollutionCacheTtl;
+
+    @Value("${weather.cache.ttl.geocoding:7d}")
+    private Duration geocodingCacheTtl;
+
+    @Value("${weather.nowcast.fallback:true}")
+    private boolean nowcastFallback;
+
+    public WeatherService(RestTemplate restTemplate, OffHeapWeatherCache weatherCache, ClusterCacheTier clusterTier,
+                          HedgedRequestExecutor hedgedExecutor, RetryExecutor retryExecutor,
+                          WeatherTrendTracker trendTracker, NowcastEngine nowcastEngine) {
         this.restTemplate = restTemplate;
+        this.weatherCache = weatherCache;
+        this.clusterTier = clusterTier;
+        this.hedgedExecutor = hedgedExecutor;
+        this.retryExecutor = retryExecutor;
+        this.trendTracker = trendTracker;
+        this.nowcastEngine = nowcastEngine;
     }
 
     // fetchAllWeatherData method remains the same...
@@ -45,35 +85,31 @@ public class WeatherService {
         String logContext = geocodingResult != null && geocodingResult.getName() != null ? geocodingResult.getName() : lat + "," + lon;
         logger.info("Fetching all weather data for {}", logContext);
         try {
-            OwmCurrentWeatherResponseDto currentData = getCurrentWeather(lat, lon);
-            OwmForecastResponseDto forecastData = getForecast(lat, lon);
-            OwmAirPollutionResponseDto airQualityData = getAirQuality(lat, lon);
-            OwmAirPollutionResponseDto.AirPollutionData currentAirQuality =
-                    (airQualityData != null && airQualityData.getList() != null && !airQualityData.getList().isEmpty())
-                            ? airQualityData.getList().get(0)
-                            : null;
-            String resolvedName = geocodingResult != null ? geocodingResult.getName() : currentData.getName();
-            String country = geocodingResult != null ? geocodingResult.getCountry() : currentData.getSys() != null ? currentData.getSys().getCountry() : null;
-            int timezoneOffset = currentData.getTimezone();
-            long sunrise = currentData.getSys() != null ? currentData.getSys().getSunrise() : 0;
-            long sunset = currentData.getSys() != null ? currentData.getSys().getSunset() : 0;
-            String searchedCityName = geocodingResult != null ? geocodingResult.getName() : null;
-            ComprehensiveWeatherResponseDto.LocationInfo locationInfo = ComprehensiveWeatherResponseDto.LocationInfo.builder()
-                    .searchedCity(searchedCityName)
-                    .resolvedName(resolvedName)
-                    .latitude(lat)
-                    .longitude(lon)
-                    .country(country)
-                    .timezoneOffset(timezoneOffset)
-                    .sunrise(sunrise)
-                    .sunset(sunset)
-                    .build();
-            return ComprehensiveWeatherResponseDto.builder()
-                    .locationInfo(locationInfo)
-                    .current(currentData)
-                    .forecastList(forecastData.getList())
-                    .airQuality(currentAirQuality)
-                    .build();
+            OwmCurrentWeatherResponseDto currentData;
+            boolean currentFromNowcast = false;
+            try {
+                currentData = getCurrentWeather(lat, lon);
+            } catch (RestClientException e) {
+                currentData = nowcastFallback(e, nowcastEngine.fallbackCurrent(lat, lon), logContext);
+                currentFromNowcast = true;
+            }
+            List<OwmForecastResponseDto.ForecastItem> forecastList;
+            boolean forecastFromNowcast = false;
+            try {
+                forecastList = getForecast(lat, lon).getList();
+            } catch (RestClientException e) {
+                forecastList = nowcastFallback(e, nowcastEngine.fallbackForecast(lat, lon), logContext);
+                forecastFromNowcast = true;
+            }
+            OwmAirPollutionResponseDto.AirPollutionData currentAirQuality = firstAirQuality(getAirQuality(lat, lon));
+            ComprehensiveWeatherResponseDto response = buildResponse(lat, lon, geocodingResult, currentData, forecastList,
+                    currentAirQuality, currentFromNowcast || forecastFromNowcast ? "nowcast" : "owm");
+            // Only real observations feed the analytics and the nowcast model
+            trendTracker.record(lat, lon, response.getLocationInfo().getResolvedName(), currentFromNowcast ? null : currentData, currentAirQuality);
+            if (!currentFromNowcast) {
+                nowcastEngine.observe(lat, lon, currentData, forecastFromNowcast ? null : forecastList);
+            }
+            return response;
         } catch (HttpClientErrorException e) {
             logger.error("HTTP Error fetching comprehensive weather data for {}: {} - {}", logContext, e.getStatusCode(), e.getResponseBodyAsString(), e);
             throw mapHttpClientException(e, logContext);
@@ -91,6 +127,39 @@ public class WeatherService {
     }
 
 
+    /**
+     * Builds the response purely from fresh cache entries, without calling OWM (an uncached AQI is
+     * left out rather than fetched). Returns null if current weather or forecast is not cached.
+     */
+    public ComprehensiveWeatherResponseDto getCachedWeatherData(double lat, double lon, CoordDto geocodingResult) {
+        return fromCache(lat, lon, geocodingResult, Duration.ZERO, "owm");
+    }
+
+    /**
+     * Geocoding result for the city if it is cached, without calling OWM; otherwise null.
+     */
+    public CoordDto getCachedCoordinates(String city) {
+        return weatherCache.get(geocodingKey(city), CoordDto.class);
+    }
+
+    /**
+     * Builds the response purely from cache entries that expired at most {@code maxStaleness} ago,
+     * without calling OWM. Returns null if current weather or forecast is not available.
+     */
+    public ComprehensiveWeatherResponseDto getStaleWeatherData(double lat, double lon, CoordDto geocodingResult, Duration maxStaleness) {
+        return fromCache(lat, lon, geocodingResult, maxStaleness, "stale-cache");
+    }
+
+    private ComprehensiveWeatherResponseDto fromCache(double lat, double lon, CoordDto geocodingResult, Duration maxStaleness, String dataSource) {
+        OwmCurrentWeatherResponseDto currentData = weatherCache.getStale(LocationKey.of("current", lat, lon), OwmCurrentWeatherResponseDto.class, maxStaleness);
+        OwmForecastResponseDto forecast = weatherCache.getStale(LocationKey.of("forecast", lat, lon), OwmForecastResponseDto.class, maxStaleness);
+        if (currentData == null || forecast == null) {
+            return null;
+        }
+        OwmAirPollutionResponseDto airQualityData = weatherCache.getStale(LocationKey.of("air", lat, lon), OwmAirPollutionResponseDto.class, maxStaleness);
+        return buildResponse(lat, lon, geocodingResult, currentData, forecast.getList(), firstAirQuality(airQualityData), dataSource);
+    }
+
     /**
      * Fetches latitude and longitude for a given city name using the Geocoding API.
      * Handles URL encoding correctly.
@@ -98,6 +167,13 @@ public class WeatherService {
     public CoordDto getCoordinatesForCity(String city) throws WeatherServiceException {
         logger.info("Attempting geocoding for city: {}", city);
 
+        String cacheKey = geocodingKey(city);
+        CoordDto cachedCoords = weatherCache.get(cacheKey, CoordDto.class);
+        if (cachedCoords != null) {
+            logger.info("Geocoding cache hit for '{}': lat={}, lon={}", city, cachedCoords.getLat(), cachedCoords.getLon());
+            return cachedCoords;
+        }
+
         URI uri = UriComponentsBuilder.fromHttpUrl(geocodingApiUrl)
                 .queryParam("q", city)
                 .queryParam("limit", 1)
@@ -108,16 +184,11 @@ public class WeatherService {
         logger.info("Constructed Geocoding URI: {}", uri.toString());
 
         try {
-            OwmGeocodingResponseDto[] response = restTemplate.getForObject(uri, OwmGeocodingResponseDto[].class);
-
-            if (response == null || response.length == 0) {
-                logger.warn("Geocoding API returned no results for city: {}", city);
-                throw new WeatherServiceException("City not found: " + city, HttpStatus.NOT_FOUND); // Throw specific 404
+            CoordDto coords = cached(cacheKey, CoordDto.class, geocodingCacheTtl, () -> geocode(city, uri));
+            if (coords == null) {
+                throw new WeatherServiceException("City not found: " + city, HttpStatus.NOT_FOUND);
             }
-
-            OwmGeocodingResponseDto result = response[0];
-            logger.info("Geocoding successful for '{}': lat={}, lon={}, name={}, country={}", city, result.getLat(), result.getLon(), result.getName(), result.getCountry());
-            return new CoordDto(result.getLat(), result.getLon(), result.getName(), result.getCountry());
+            return coords;
 
         // *** CORRECTED CATCH BLOCK ORDER AND LOGIC ***
         } catch (WeatherServiceException e) {
@@ -139,11 +210,54 @@ public class WeatherService {
         // **********************************************
     }
 
+    /**
+     * Resolves a cache key on behalf of a cluster peer (this node owns the key).
+     * Keys have the same format as produced by {@link LocationKey} and the geocoding lookup.
+     */
+    public Object loadForPeer(String cacheKey) {
+        int separator = cacheKey.indexOf(':');
+        String kind = separator > 0 ? cacheKey.substring(0, separator) : "";
+        String argument = cacheKey.substring(separator + 1);
+        if (kind.equals("geo")) {
+            return getCoordinatesForCity(argument);
+        }
+        String[] coords = argument.split(",");
+        if (coords.length != 2) {
+            throw new IllegalArgumentException("Malformed cluster cache key: " + cacheKey);
+        }
+        double lat = Double.parseDouble(coords[0]);
+        double lon = Double.parseDouble(coords[1]);
+        return switch (kind) {
+            case "current" -> getCurrentWeather(lat, lon);
+            case "forecast" -> getForecast(lat, lon);
+            case "air" -> getAirQuality(lat, lon);
+            default -> throw new IllegalArgumentException("Unknown cluster cache key: " + cacheKey);
+        };
+    }
+
     // --- Private Helper Methods for API Calls ---
     // (getCurrentWeather, getForecast, getAirQuality, mapHttpClientException)
     // remain the same as the previous corrected version using URI...
 
+    private CoordDto geocode(String city, URI uri) throws HttpClientErrorException, RestClientException {
+        OwmGeocodingResponseDto[] response = callUpstream("geocoding", () -> restTemplate.getForObject(uri, OwmGeocodingResponseDto[].class));
+
+        if (response == null || response.length == 0) {
+            logger.warn("Geocoding API returned no results for city: {}", city);
+            throw new WeatherServiceException("City not found: " + city, HttpStatus.NOT_FOUND); // Throw specific 404
+        }
+
+        OwmGeocodingResponseDto result = response[0];
+        logger.info("Geocoding successful for '{}': lat={}, lon={}, name={}, country={}", city, result.getLat(), result.getLon(), result.getName(), result.getCountry());
+        return new CoordDto(result.getLat(), result.getLon(), result.getName(), result.getCountry());
+    }
+
     private OwmCurrentWeatherResponseDto getCurrentWeather(double lat, double lon) throws HttpClientErrorException, RestClientException {
+        return cached(LocationKey.of("current", lat, lon), OwmCurrentWeatherResponseDto.class, currentCacheTtl,
+                () -> fetchCurrentWeather(lat, lon));
+    }
+
+    private OwmCurrentWeatherResponseDto fetchCurrentWeather(double lat, double lon) throws HttpClientErrorException, RestClientException {
         logger.debug("Calling Current Weather API for lat={}, lon={}", lat, lon);
         URI uri = UriComponentsBuilder.fromHttpUrl(currentApiUrl)
                 .queryParam("lat", lat)
@@ -152,7 +266,7 @@ public class WeatherService {
                 .queryParam("units", "metric")
                 .build(false).toUri(); // Use URI
         logger.debug("Current Weather URI: {}", uri);
-        OwmCurrentWeatherResponseDto response = restTemplate.getForObject(uri, OwmCurrentWeatherResponseDto.class); // Use URI
+        OwmCurrentWeatherResponseDto response = callUpstream("current", () -> restTemplate.getForObject(uri, OwmCurrentWeatherResponseDto.class)); // Use URI
         if (response == null) {
              logger.error("Received null response from Current Weather API for lat={}, lon={}", lat, lon);
              throw new RestClientException("Received null response from Current Weather API");
@@ -162,6 +276,11 @@ public class WeatherService {
     }
 
     private OwmForecastResponseDto getForecast(double lat, double lon) throws HttpClientErrorException, RestClientException {
+        return cached(LocationKey.of("forecast", lat, lon), OwmForecastResponseDto.class, forecastCacheTtl,
+                () -> fetchForecast(lat, lon));
+    }
+
+    private OwmForecastResponseDto fetchForecast(double lat, double lon) throws HttpClientErrorException, RestClientException {
         logger.debug("Calling Forecast API for lat={}, lon={}", lat, lon);
         URI uri = UriComponentsBuilder.fromHttpUrl(forecastApiUrl)
                 .queryParam("lat", lat)
@@ -170,7 +289,7 @@ public class WeatherService {
                 .queryParam("units", "metric")
                 .build(false).toUri(); // Use URI
         logger.debug("Forecast URI: {}", uri);
-        OwmForecastResponseDto response = restTemplate.getForObject(uri, OwmForecastResponseDto.class); // Use URI
+        OwmForecastResponseDto response = callUpstream("forecast", () -> restTemplate.getForObject(uri, OwmForecastResponseDto.class)); // Use URI
          if (response == null) {
              logger.error("Received null response from Forecast API for lat={}, lon={}", lat, lon);
              throw new RestClientException("Received null response from Forecast API");
@@ -179,7 +298,12 @@ public class WeatherService {
          return response;
     }
 
-    private OwmAirPollutionResponseDto getAirQuality(double lat, double lon) { // Removed throws for AQI failure
+    private OwmAirPollutionResponseDto getAirQuality(double lat, double lon) {
+        return cached(LocationKey.of("air", lat, lon), OwmAirPollutionResponseDto.class, airPollutionCacheTtl,
+                () -> fetchAirQuality(lat, lon));
+    }
+
+    private OwmAirPollutionResponseDto fetchAirQuality(double lat, double lon) { // Removed throws for AQI failure
         logger.debug("Calling Air Pollution API for lat={}, lon={}", lat, lon);
         URI uri = UriComponentsBuilder.fromHttpUrl(airPollutionApiUrl)
                 .queryParam("lat", lat)
@@ -188,7 +312,7 @@ public class WeatherService {
                 .build(false).toUri(); // Use URI
         logger.debug("Air Pollution URI: {}", uri);
         try {
-            OwmAirPollutionResponseDto response = restTemplate.getForObject(uri, OwmAirPollutionResponseDto.class); // Use URI
+            OwmAirPollutionResponseDto response = callUpstream("air_pollution", () -> restTemplate.getForObject(uri, OwmAirPollutionResponseDto.class)); // Use URI
              if (response == null) {
                  logger.warn("Received null response from Air Pollution API for lat={}, lon={}. Treating as unavailable.", lat, lon);
                  return null;
@@ -210,15 +334,98 @@ public class WeatherService {
         }
     }
 
+    private static OwmAirPollutionResponseDto.AirPollutionData firstAirQuality(OwmAirPollutionResponseDto airQualityData) {
+        return (airQualityData != null && airQualityData.getList() != null && !airQualityData.getList().isEmpty())
+                ? airQualityData.getList().get(0)
+                : null;
+    }
+
+    private static ComprehensiveWeatherResponseDto buildResponse(double lat, double lon, CoordDto geocodingResult,
+                                                                 OwmCurrentWeatherResponseDto currentData,
+                                                                 List<OwmForecastResponseDto.ForecastItem> forecastList,
+                                                                 OwmAirPollutionResponseDto.AirPollutionData currentAirQuality,
+                                                                 String dataSource) {
+        String resolvedName = geocodingResult != null ? geocodingResult.getName() : currentData.getName();
+        String country = geocodingResult != null ? geocodingResult.getCountry() : currentData.getSys() != null ? currentData.getSys().getCountry() : null;
+        int timezoneOffset = currentData.getTimezone();
+        long sunrise = currentData.getSys() != null ? currentData.getSys().getSunrise() : 0;
+        long sunset = currentData.getSys() != null ? currentData.getSys().getSunset() : 0;
+        String searchedCityName = geocodingResult != null ? geocodingResult.getName() : null;
+        ComprehensiveWeatherResponseDto.LocationInfo locationInfo = ComprehensiveWeatherResponseDto.LocationInfo.builder()
+                .searchedCity(searchedCityName)
+                .resolvedName(resolvedName)
+                .latitude(lat)
+                .longitude(lon)
+                .country(country)
+                .timezoneOffset(timezoneOffset)
+                .sunrise(sunrise)
+                .sunset(sunset)
+                .build();
+        return ComprehensiveWeatherResponseDto.builder()
+                .locationInfo(locationInfo)
+                .current(currentData)
+                .forecastList(forecastList)
+                .airQuality(currentAirQuality)
+                .dataSource(dataSource)
+                .build();
+    }
+
+    // Serves the local nowcast when OWM is down or over quota; other errors (bad key, unknown location) are rethrown
+    private <T> T nowcastFallback(RestClientException e, T fallback, String logContext) {
+        boolean upstreamUnavailable = !(e instanceof HttpClientErrorException clientError)
+                || clientError.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        if (!nowcastFallback || !upstreamUnavailable || fallback == null) {
+            throw e;
+        }
+        logger.warn("OWM unavailable for {} ({}), serving local nowcast instead.", logContext, e.getMessage());
+        return fallback;
+    }
+
+    // Each attempt is hedged; failed attempts are retried within the request deadline and retry budget
+    private <T> T callUpstream(String endpoint, Supplier<T> call) {
+        return retryExecutor.execute(endpoint, () -> hedgedExecutor.execute(endpoint, call));
+    }
+
+    // Serves from the off-heap cache, then the cluster tier (owner node or local loader); null results (e.g. missing AQI) are not cached
+    private <T> T cached(String cacheKey, Class<T> type, Duration ttl, Supplier<T> loader) {
+        T cachedValue = weatherCache.get(cacheKey, type);
+        if (cachedValue != null) {
+            logger.debug("Cache hit for {}", cacheKey);
+            return cachedValue;
+        }
+        T value = clusterTier.load(cacheKey, type, () -> {
+            // Cached before the tier releases the key, so a miss right after this load completes finds it
+            T fresh = weatherCache.get(cacheKey, type);
+            if (fresh != null) {
+                return fresh;
+            }
+            T loaded = loader.get();
+            weatherCache.put(cacheKey, loaded, ttl);
+            return loaded;
+        });
+        if (!weatherCache.isFresh(cacheKey)) {
+            weatherCache.put(cacheKey, value, ttl); // resolved by the owning peer
+        }
+        return value;
+    }
+
+    private static String geocodingKey(String city) {
+        return "geo:" + city.trim().toLowerCase(Locale.ROOT);
+    }
+
     private WeatherServiceException mapHttpClientException(HttpClientErrorException e, String context) {
          HttpStatus status = (HttpStatus) e.getStatusCode();
+         Long retryAfterSeconds = null;
          String message;
          if (status == HttpStatus.NOT_FOUND) {
              message = "Could not find data for " + context + ". Please check the location/input.";
          } else if (status == HttpStatus.UNAUTHORIZED || status == HttpStatus.FORBIDDEN) {
              message = "Invalid API Key or unauthorized request for " + context + ". Check backend configuration and OWM subscription.";
          } else if (status == HttpStatus.TOO_MANY_REQUESTS) {
-             message = "API call limit exceeded for " + context + ". Please wait and try again later or check your OWM plan.";
+             retryAfterSeconds = RetryExecutor.parseRetryAfterSeconds(
+                     e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("Retry-After") : null);
+             message = "API call limit exceeded for " + context + ". Please wait and try again later or check your OWM plan."
+                     + (retryAfterSeconds != null ? " Retry after " + retryAfterSeconds + " seconds." : "");
          } else if (status.is4xxClientError()) {
              message = "Invalid request [" + status.value() + "] for " + context + ". Details: " + e.getResponseBodyAsString();
          } else if (status.is5xxServerError()) {
@@ -227,6 +434,6 @@ public class WeatherService {
              message = "An error occurred [" + status.value() + "] while contacting the weather service for " + context + ".";
          }
          logger.warn("Mapping HttpClientErrorException for context '{}': Status={}, ResponseBody='{}'", context, status, e.getResponseBodyAsString());
-         return new WeatherServiceException(message, status, e);
+         return new WeatherServiceException(message, status, e, retryAfterSeconds);
     }
 }
\ No newline at end of file
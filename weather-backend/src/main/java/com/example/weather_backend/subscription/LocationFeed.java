@@ -0,0 +1,125 @@
+package com.example.weather_backend.subscription;
+
+import com.example.weather_backend.dto.ComprehensiveWeatherResponseDto;
+import com.example.weather_backend.dto.CoordDto;
+import com.example.weather_backend.dto.WeatherUpdateDto;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One subscribed location: its subscribers and the last state pushed to them. Each refresh is
+ * diffed section by section (DTO equality) against that state, so unchanged data is never resent.
+ * Joining and publishing hold the feed's lock, so a new subscriber is handed the snapshot it joined
+ * at before any later update is queued for it.
+ */
+class LocationFeed {
+
+    private final String key;
+    private final CoordDto coordinates; // name/country set when subscribed by city
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private ComprehensiveWeatherResponseDto last;
+    private long version;
+    private volatile WeatherUpdateDto snapshot; // full state for subscribers that join later
+
+    LocationFeed(String key, CoordDto coordinates) {
+        this.key = key;
+        this.coordinates = coordinates;
+    }
+
+    String key() {
+        return key;
+    }
+
+    CoordDto coordinates() {
+        return coordinates;
+    }
+
+    Set<Subscriber> subscribers() {
+        return subscribers;
+    }
+
+    WeatherUpdateDto snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Adds the subscriber and, if the feed already has state, hands it the current snapshot.
+     */
+    synchronized void join(Subscriber subscriber, Consumer<WeatherUpdateDto> sendSnapshot) {
+        subscribers.add(subscriber);
+        if (snapshot != null) {
+            sendSnapshot.accept(snapshot);
+        }
+    }
+
+    /**
+     * {@link #apply Applies} the data and, if anything changed, hands the update to {@code fanOut}
+     * before a subscriber can join. Returns the update, or null if nothing changed.
+     */
+    synchronized WeatherUpdateDto publish(ComprehensiveWeatherResponseDto data, Consumer<WeatherUpdateDto> fanOut) {
+        WeatherUpdateDto update = apply(data);
+        if (update != null) {
+            fanOut.accept(update);
+        }
+        return update;
+    }
+
+    // At most one refresh per feed in flight, however often it is triggered
+    boolean tryStartRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    void endRefresh() {
+        refreshing.set(false);
+    }
+
+    /**
+     * Records the freshly fetched data and returns the sections that changed, or null if nothing did.
+     * A missing AQI block is treated as "unchanged" since the air-pollution call is best effort.
+     */
+    synchronized WeatherUpdateDto apply(ComprehensiveWeatherResponseDto data) {
+        ComprehensiveWeatherResponseDto previous = last;
+        boolean first = previous == null;
+        boolean locationChanged = first || !Objects.equals(previous.getLocationInfo(), data.getLocationInfo());
+        boolean currentChanged = first || !Objects.equals(previous.getCurrent(), data.getCurrent());
+        boolean forecastChanged = first || !Objects.equals(previous.getForecastList(), data.getForecastList());
+        boolean airChanged = data.getAirQuality() != null && (first || !Objects.equals(previous.getAirQuality(), data.getAirQuality()));
+        boolean sourceChanged = first || !Objects.equals(previous.getDataSource(), data.getDataSource());
+        if (!locationChanged && !currentChanged && !forecastChanged && !airChanged && !sourceChanged) {
+            return null;
+        }
+        if (data.getAirQuality() == null && previous != null) {
+            data.setAirQuality(previous.getAirQuality());
+        }
+        last = data;
+        version++;
+        snapshot = WeatherUpdateDto.builder()
+                .locationKey(key)
+                .version(version)
+                .snapshot(true)
+                .dataSource(data.getDataSource())
+                .locationInfo(data.getLocationInfo())
+                .current(data.getCurrent())
+                .forecastList(data.getForecastList())
+                .airQuality(data.getAirQuality())
+                .build();
+        if (first) {
+            return snapshot;
+        }
+        return WeatherUpdateDto.builder()
+                .locationKey(key)
+                .version(version)
+                .dataSource(data.getDataSource())
+                .locationInfo(locationChanged ? data.getLocationInfo() : null)
+                .current(currentChanged ? data.getCurrent() : null)
+                .forecastList(forecastChanged ? data.getForecastList() : null)
+                .airQuality(airChanged ? data.getAirQuality() : null)
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.weather_backend.subscription;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open event stream. While idle it holds no thread, only the async request and its socket.
+ * Events are queued in an outbox that at most one worker drains at a time, so the client sees them
+ * in the order they were queued.
+ */
+class Subscriber {
+
+    private final SseEmitter emitter;
+    private final List<String> feedKeys;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    Subscriber(SseEmitter emitter, List<String> feedKeys) {
+        this.emitter = emitter;
+        this.feedKeys = feedKeys;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    List<String> feedKeys() {
+        return feedKeys;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Queues a pre-serialized event. Returns true if the caller has to start draining the outbox,
+     * i.e. no drain is running for this subscriber.
+     */
+    boolean enqueue(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (closed.get()) {
+            return false;
+        }
+        outbox.add(event);
+        return draining.compareAndSet(false, true);
+    }
+
+    Set<ResponseBodyEmitter.DataWithMediaType> nextQueued() {
+        return outbox.poll();
+    }
+
+    // Ends a drain; returns true if events were queued meanwhile and the caller must keep draining
+    boolean finishDrain() {
+        draining.set(false);
+        return !outbox.isEmpty() && draining.compareAndSet(false, true);
+    }
+
+    /**
+     * Writes a pre-serialized event; returns false if the client has gone away.
+     */
+    boolean send(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (closed.get()) {
+            return false;
+        }
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+
+    // Returns true only for the first caller, so unregistering happens once
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        outbox.clear();
+        try {
+            emitter.complete();
+        } catch (RuntimeException e) {
+            // already completed by the container (timeout, client disconnect)
+        }
+        return true;
+    }
+}
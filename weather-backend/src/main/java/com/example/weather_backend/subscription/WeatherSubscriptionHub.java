@@ -0,0 +1,264 @@
+package com.example.weather_backend.subscription;
+
+import com.example.weather_backend.cache.LocationKey;
+import com.example.weather_backend.dto.ComprehensiveWeatherResponseDto;
+import com.example.weather_backend.dto.CoordDto;
+import com.example.weather_backend.dto.WeatherUpdateDto;
+import com.example.weather_backend.exception.WeatherServiceException;
+import com.example.weather_backend.service.WeatherService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-push alternative to polling {@code /api/weather/location}. Clients open one event stream
+ * for any number of locations; every subscribed location is refreshed once per refresh interval,
+ * however many subscribers it has, and only the sections that actually changed are pushed.
+ * <p>
+ * Streams are async requests, so an idle subscriber costs a socket and a few small objects but no
+ * thread. Refreshes and socket writes run on virtual threads; each event is serialized once per
+ * location and the same bytes are queued for every subscriber, whose queue is written in order.
+ * A periodic comment line keeps proxies from dropping idle streams and detects clients that have
+ * gone away.
+ * <p>
+ * Metrics: {@code weather.subscriptions.active}, {@code weather.subscriptions.locations},
+ * {@code weather.subscriptions.refreshes} (by outcome) and {@code weather.subscriptions.events}.
+ */
+@Component
+public class WeatherSubscriptionHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherSubscriptionHub.class);
+    private static final long SATURATED_RETRY_AFTER_SECONDS = 30;
+
+    private final WeatherService weatherService;
+    private final ObjectMapper objectMapper;
+    private final long streamTimeoutMillis;
+    private final int maxSubscribers;
+    private final Semaphore refreshPermits;
+
+    private final Map<String, LocationFeed> feeds = new ConcurrentHashMap<>();
+    private final AtomicInteger activeSubscribers = new AtomicInteger();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("weather-subscriptions").daemon().unstarted(runnable));
+    // Upstream fetches and socket writes block, so both run on virtual threads
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<ResponseBodyEmitter.DataWithMediaType> heartbeat = SseEmitter.event().comment("keep-alive").build();
+
+    private final Counter refreshesChanged;
+    private final Counter refreshesUnchanged;
+    private final Counter refreshesFailed;
+    private final Counter eventsSent;
+
+    public WeatherSubscriptionHub(WeatherService weatherService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                  @Value("${weather.subscriptions.refresh-interval:60s}") Duration refreshInterval,
+                                  @Value("${weather.subscriptions.heartbeat-interval:30s}") Duration heartbeatInterval,
+                                  @Value("${weather.subscriptions.stream-timeout:30m}") Duration streamTimeout,
+                                  @Value("${weather.subscriptions.max-subscribers:50000}") int maxSubscribers,
+                                  @Value("${weather.subscriptions.refresh-concurrency:16}") int refreshConcurrency) {
+        this.weatherService = weatherService;
+        this.objectMapper = objectMapper;
+        this.streamTimeoutMillis = streamTimeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.refreshPermits = new Semaphore(refreshConcurrency);
+
+        meterRegistry.gauge("weather.subscriptions.active", activeSubscribers);
+        meterRegistry.gaugeMapSize("weather.subscriptions.locations", List.of(), feeds);
+        this.refreshesChanged = meterRegistry.counter("weather.subscriptions.refreshes", "outcome", "changed");
+        this.refreshesUnchanged = meterRegistry.counter("weather.subscriptions.refreshes", "outcome", "unchanged");
+        this.refreshesFailed = meterRegistry.counter("weather.subscriptions.refreshes", "outcome", "failed");
+        this.eventsSent = meterRegistry.counter("weather.subscriptions.events");
+
+        scheduler.scheduleWithFixedDelay(this::refreshAll, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+        feeds.values().forEach(feed -> feed.subscribers().forEach(Subscriber::close));
+    }
+
+    /**
+     * Opens an event stream for the given locations (already geocoded). Each location first gets a
+     * full {@code snapshot} event, then {@code update} events with only the changed sections.
+     */
+    public SseEmitter subscribe(List<CoordDto> locations) {
+        if (activeSubscribers.incrementAndGet() > maxSubscribers) {
+            activeSubscribers.decrementAndGet();
+            throw new WeatherServiceException("Too many open subscriptions, please poll /api/weather/location instead.",
+                    HttpStatus.SERVICE_UNAVAILABLE, null, SATURATED_RETRY_AFTER_SECONDS);
+        }
+        Map<String, CoordDto> byKey = new LinkedHashMap<>();
+        for (CoordDto location : locations) {
+            byKey.putIfAbsent(LocationKey.of(location.getLat(), location.getLon()), location);
+        }
+        SseEmitter emitter = newEmitter(streamTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayList<>(byKey.keySet()));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        for (Map.Entry<String, CoordDto> entry : byKey.entrySet()) {
+            LocationFeed feed = feeds.compute(entry.getKey(), (key, existing) -> {
+                LocationFeed target = existing != null ? existing : new LocationFeed(key, entry.getValue());
+                target.join(subscriber, snapshot -> deliver(subscriber, toEvent(snapshot)));
+                return target;
+            });
+            // No state yet: the pending refresh fans out its first snapshot to us
+            if (feed.snapshot() == null) {
+                refreshAsync(feed);
+            }
+        }
+        logger.debug("Subscriber opened for {} ({} active)", subscriber.feedKeys(), activeSubscribers.get());
+        return emitter;
+    }
+
+    // Overridden in tests to observe what is written to a stream
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        activeSubscribers.decrementAndGet();
+        for (String key : subscriber.feedKeys()) {
+            // Atomic with subscribe's compute, so a feed is never dropped while someone joins it
+            feeds.computeIfPresent(key, (k, feed) -> {
+                feed.subscribers().remove(subscriber);
+                return feed.subscribers().isEmpty() ? null : feed;
+            });
+        }
+    }
+
+    private void refreshAll() {
+        for (LocationFeed feed : feeds.values()) {
+            refreshAsync(feed);
+        }
+    }
+
+    private void refreshAsync(LocationFeed feed) {
+        if (!feed.tryStartRefresh()) {
+            return; // one fetch per location in flight, however many triggers
+        }
+        try {
+            workers.execute(() -> refresh(feed));
+        } catch (RuntimeException e) {
+            feed.endRefresh(); // shutting down
+        }
+    }
+
+    private void refresh(LocationFeed feed) {
+        try {
+            refreshPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            feed.endRefresh();
+            return;
+        }
+        try {
+            CoordDto coordinates = feed.coordinates();
+            ComprehensiveWeatherResponseDto data = weatherService.fetchAllWeatherData(coordinates.getLat(), coordinates.getLon(),
+                    coordinates.getName() != null ? coordinates : null);
+            WeatherUpdateDto update = feed.publish(data, changed -> {
+                Set<ResponseBodyEmitter.DataWithMediaType> event = toEvent(changed);
+                for (Subscriber subscriber : feed.subscribers()) {
+                    deliver(subscriber, event);
+                }
+            });
+            if (update == null) {
+                refreshesUnchanged.increment();
+                return;
+            }
+            refreshesChanged.increment();
+        } catch (WeatherServiceException e) {
+            refreshesFailed.increment();
+            logger.warn("Subscription refresh failed for {}: {} (Status: {})", feed.key(), e.getMessage(), e.getStatus());
+        } catch (RuntimeException e) {
+            refreshesFailed.increment();
+            logger.error("Unexpected error refreshing subscription feed {}: {}", feed.key(), e.getMessage(), e);
+        } finally {
+            refreshPermits.release();
+            feed.endRefresh();
+        }
+    }
+
+    private void sendHeartbeats() {
+        Set<Subscriber> seen = new HashSet<>();
+        for (LocationFeed feed : feeds.values()) {
+            for (Subscriber subscriber : feed.subscribers()) {
+                if (seen.add(subscriber)) {
+                    deliver(subscriber, heartbeat);
+                }
+            }
+        }
+    }
+
+    // Queues the event; never blocks, so it is safe under the feed lock
+    private void deliver(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (!subscriber.enqueue(event)) {
+            return; // a drain is already running and will pick it up
+        }
+        try {
+            workers.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // shutting down, shutdown() completes every stream
+        }
+    }
+
+    // Only one drain runs per subscriber at a time, so its events are written in queue order
+    private void drain(Subscriber subscriber) {
+        do {
+            for (Set<ResponseBodyEmitter.DataWithMediaType> event = subscriber.nextQueued(); event != null; event = subscriber.nextQueued()) {
+                if (!subscriber.send(event)) {
+                    unsubscribe(subscriber);
+                    return;
+                }
+                if (event != heartbeat) {
+                    eventsSent.increment();
+                }
+            }
+        } while (subscriber.finishDrain());
+    }
+
+    // Serialized once per change and shared by every subscriber of the location
+    private Set<ResponseBodyEmitter.DataWithMediaType> toEvent(WeatherUpdateDto update) {
+        try {
+            return SseEmitter.event()
+                    .name(update.isSnapshot() ? "snapshot" : "update")
+                    .id(update.getLocationKey() + "/" + update.getVersion())
+                    .data(objectMapper.writeValueAsString(update), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize weather update for " + update.getLocationKey(), e);
+        }
+    }
+}
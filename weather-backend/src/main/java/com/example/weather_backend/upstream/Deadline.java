@@ -0,0 +1,37 @@
+package com.example.weather_backend.upstream;
+
+import java.time.Duration;
+
+/**
+ * Time budget of the request currently being served on this thread. Set once per inbound request
+ * (see {@code RequestDeadlineFilter}), or per upstream call by {@link RetryExecutor} for background
+ * work, so upstream attempts and retries never wait past what the caller allows.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Long> current = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    public static void start(Duration timeout) {
+        current.set(System.nanoTime() + timeout.toNanos());
+    }
+
+    public static void clear() {
+        current.remove();
+    }
+
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Nanoseconds left for the current request (negative once it has passed), or
+     * {@link Long#MAX_VALUE} when no deadline was started.
+     */
+    public static long remainingNanos() {
+        Long deadline = current.get();
+        return deadline != null ? deadline - System.nanoTime() : Long.MAX_VALUE;
+    }
+}
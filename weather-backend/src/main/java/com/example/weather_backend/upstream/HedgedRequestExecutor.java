@@ -0,0 +1,248 @@
+package com.example.weather_backend.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs idempotent upstream calls with hedging: if the first attempt has not answered within the
+ * endpoint's recently observed p95 latency, a second identical attempt is fired and whichever
+ * succeeds first wins. Hedges are paid for from a budget that refills as a fraction of primary
+ * calls, so a slow upstream can at most add {@code budget-ratio} extra calls. Callers never wait
+ * past the current {@link Deadline}; an attempt still running then is abandoned.
+ * <p>
+ * Metrics: {@code weather.upstream.latency} is the latency callers see (with hedging),
+ * {@code weather.upstream.attempt.latency} the latency of individual attempts (what callers would
+ * see without it), and {@code weather.upstream.hedges} counts hedges fired/won/skipped.
+ */
+@Component
+public class HedgedRequestExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgedRequestExecutor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelayNanos;
+    private final double budgetRatio;
+    private final double budgetBurst;
+
+    // Attempts block on RestTemplate I/O, so virtual threads keep the hedge cheap
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private double hedgeTokens;
+
+    public HedgedRequestExecutor(MeterRegistry meterRegistry,
+                                 @Value("${weather.hedging.enabled:true}") boolean enabled,
+                                 @Value("${weather.hedging.percentile:0.95}") double percentile,
+                                 @Value("${weather.hedging.min-samples:20}") int minSamples,
+                                 @Value("${weather.hedging.min-delay:50ms}") Duration minDelay,
+                                 @Value("${weather.hedging.budget-ratio:0.1}") double budgetRatio,
+                                 @Value("${weather.hedging.budget-burst:10}") double budgetBurst) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.minDelayNanos = minDelay.toNanos();
+        this.budgetRatio = budgetRatio;
+        this.budgetBurst = budgetBurst;
+        this.hedgeTokens = budgetBurst;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Executes the call, hedging it once if it is slower than usual for this endpoint.
+     * Exceptions thrown by the call (e.g. {@code HttpClientErrorException}) are rethrown unchanged;
+     * running out of request deadline is reported as a {@link ResourceAccessException}.
+     */
+    public <T> T execute(String endpoint, Supplier<T> call) {
+        EndpointStats stats = endpoints.computeIfAbsent(endpoint, this::createStats);
+        if (enabled) {
+            refillBudget();
+        }
+        long started = System.nanoTime();
+        try {
+            return hedged(endpoint, stats, call);
+        } finally {
+            stats.callerLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private <T> T hedged(String endpoint, EndpointStats stats, Supplier<T> call) {
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        completion.submit(() -> attempt(stats, call));
+        Future<T> hedge = null;
+        try {
+            long hedgeDelay = enabled ? stats.hedgeDelayNanos() : -1;
+            // No point hedging if the hedge could only start after the caller has given up
+            Future<T> first = hedgeDelay > 0 && hedgeDelay < Deadline.remainingNanos()
+                    ? completion.poll(hedgeDelay, TimeUnit.NANOSECONDS)
+                    : next(completion, endpoint);
+            if (first == null) {
+                if (tryAcquireHedge()) {
+                    logger.debug("Hedging {} call after {} ms", endpoint, TimeUnit.NANOSECONDS.toMillis(hedgeDelay));
+                    stats.hedgesFired.increment();
+                    hedge = completion.submit(() -> attempt(stats, call));
+                } else {
+                    stats.hedgesSkipped.increment();
+                }
+                first = next(completion, endpoint);
+            }
+            int outstanding = hedge != null ? 1 : 0;
+            // Prefer a successful answer: if the first finisher failed, wait for the other attempt
+            while (outstanding > 0 && failed(first)) {
+                first = next(completion, endpoint);
+                outstanding--;
+            }
+            if (hedge != null && first == hedge && !failed(first)) {
+                stats.hedgesWon.increment();
+            }
+            return first.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + endpoint + " call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Upstream " + endpoint + " call failed", e.getCause());
+        }
+        // The losing attempt is left to finish so its latency still feeds the percentile window
+    }
+
+    /**
+     * Recent attempt latency of the endpoint at the hedging percentile (p95 by default), or -1 until
+     * enough samples have been seen.
+     */
+    public long attemptLatencyNanos(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return stats != null ? stats.percentileNanos : -1;
+    }
+
+    // Next finished attempt, waiting at most until the request deadline
+    private static <T> Future<T> next(ExecutorCompletionService<T> completion, String endpoint) throws InterruptedException {
+        Future<T> done = completion.poll(Math.max(0, Deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        if (done == null) {
+            throw new ResourceAccessException("Upstream " + endpoint + " call did not complete within the request deadline");
+        }
+        return done;
+    }
+
+    private <T> T attempt(EndpointStats stats, Supplier<T> call) {
+        long started = System.nanoTime();
+        T result = call.get();
+        long elapsed = System.nanoTime() - started;
+        stats.attemptLatency.record(elapsed, TimeUnit.NANOSECONDS);
+        stats.recordSample(elapsed);
+        return result;
+    }
+
+    private static boolean failed(Future<?> future) {
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException | CancellationException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    private synchronized void refillBudget() {
+        hedgeTokens = Math.min(budgetBurst, hedgeTokens + budgetRatio);
+    }
+
+    private synchronized boolean tryAcquireHedge() {
+        if (hedgeTokens >= 1.0) {
+            hedgeTokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    private EndpointStats createStats(String endpoint) {
+        return new EndpointStats(
+                Timer.builder("weather.upstream.latency")
+                        .description("Upstream call latency as seen by callers, including hedging")
+                        .tag("endpoint", endpoint)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry),
+                Timer.builder("weather.upstream.attempt.latency")
+                        .description("Latency of individual upstream attempts")
+                        .tag("endpoint", endpoint)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry),
+                Counter.builder("weather.upstream.hedges").tag("endpoint", endpoint).tag("outcome", "fired").register(meterRegistry),
+                Counter.builder("weather.upstream.hedges").tag("endpoint", endpoint).tag("outcome", "won").register(meterRegistry),
+                Counter.builder("weather.upstream.hedges").tag("endpoint", endpoint).tag("outcome", "budget_exhausted").register(meterRegistry));
+    }
+
+    // Sliding window of recent attempt latencies; the hedge delay is re-derived every few samples
+    private final class EndpointStats {
+        private static final int WINDOW = 256;
+        private static final int RECOMPUTE_EVERY = 16;
+
+        final Timer callerLatency;
+        final Timer attemptLatency;
+        final Counter hedgesFired;
+        final Counter hedgesWon;
+        final Counter hedgesSkipped;
+
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+        private volatile long hedgeDelayNanos = -1;
+        private volatile long percentileNanos = -1;
+
+        EndpointStats(Timer callerLatency, Timer attemptLatency, Counter hedgesFired, Counter hedgesWon, Counter hedgesSkipped) {
+            this.callerLatency = callerLatency;
+            this.attemptLatency = attemptLatency;
+            this.hedgesFired = hedgesFired;
+            this.hedgesWon = hedgesWon;
+            this.hedgesSkipped = hedgesSkipped;
+        }
+
+        // -1 until enough samples are seen, which means "don't hedge yet"
+        long hedgeDelayNanos() {
+            return hedgeDelayNanos;
+        }
+
+        synchronized void recordSample(long latencyNanos) {
+            samples[next] = latencyNanos;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+            if (count == minSamples || (count > minSamples && next % RECOMPUTE_EVERY == 0)) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                long p = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+                percentileNanos = p;
+                hedgeDelayNanos = Math.max(minDelayNanos, p);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.weather_backend.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries idempotent upstream GETs on I/O errors, 5xx and 429 responses.
+ * <p>
+ * Delays use exponential backoff with full jitter, but never less than the upstream's
+ * {@code Retry-After}. A retry is only attempted if its delay plus the time the attempt itself is
+ * expected to take (the endpoint's recent p95, or the read timeout until there are enough samples)
+ * fits in the caller's remaining {@link Deadline}, and only while the global retry budget (refilled
+ * as a fraction of first attempts) has tokens, so retries cannot multiply load during an outage.
+ * Calls made outside an inbound request get a deadline of {@code default-deadline} for all of
+ * their attempts.
+ * Policies default to {@code weather.retry.*} and can be overridden per endpoint with
+ * {@code weather.retry.endpoint.<name>.*}.
+ */
+@Component
+public class RetryExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryExecutor.class);
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final HedgedRequestExecutor hedgedExecutor;
+    private final boolean enabled;
+    private final Duration defaultDeadline;
+    private final long readTimeoutNanos;
+    private final double budgetRatio;
+    private final double budgetBurst;
+
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private double retryTokens;
+
+    record Policy(int maxAttempts, long baseDelayNanos, long maxDelayNanos) {
+    }
+
+    public RetryExecutor(Environment environment,
+                         MeterRegistry meterRegistry,
+                         HedgedRequestExecutor hedgedExecutor,
+                         @Value("${weather.retry.enabled:true}") boolean enabled,
+                         @Value("${weather.retry.default-deadline:10s}") Duration defaultDeadline,
+                         @Value("${openweathermap.api.read-timeout:5s}") Duration readTimeout,
+                         @Value("${weather.retry.budget-ratio:0.2}") double budgetRatio,
+                         @Value("${weather.retry.budget-burst:20}") double budgetBurst) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.hedgedExecutor = hedgedExecutor;
+        this.enabled = enabled;
+        this.defaultDeadline = defaultDeadline;
+        this.readTimeoutNanos = readTimeout.toNanos();
+        this.budgetRatio = budgetRatio;
+        this.budgetBurst = budgetBurst;
+        this.retryTokens = budgetBurst;
+    }
+
+    public <T> T execute(String endpoint, Supplier<T> call) {
+        // Started once here, not per check, so background calls cannot keep earning a fresh budget
+        boolean ownDeadline = !Deadline.isActive();
+        if (ownDeadline) {
+            Deadline.start(defaultDeadline);
+        }
+        try {
+            return enabled ? withRetries(endpoint, call) : call.get();
+        } finally {
+            if (ownDeadline) {
+                Deadline.clear();
+            }
+        }
+    }
+
+    private <T> T withRetries(String endpoint, Supplier<T> call) {
+        Policy policy = policies.computeIfAbsent(endpoint, this::loadPolicy);
+        refillBudget();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (!isRetryable(e) || attempt >= policy.maxAttempts()) {
+                    throw e;
+                }
+                long delayNanos = backoffNanos(policy, attempt);
+                Long retryAfterNanos = retryAfterNanos(e);
+                if (retryAfterNanos != null) {
+                    delayNanos = Math.max(delayNanos, retryAfterNanos);
+                }
+                long expectedAttemptNanos = expectedAttemptNanos(endpoint);
+                long remainingNanos = Deadline.remainingNanos();
+                if (delayNanos + expectedAttemptNanos > remainingNanos) {
+                    logger.warn("Not retrying {} call: backoff of {} ms plus expected attempt time of {} ms exceeds the remaining request deadline of {} ms.",
+                            endpoint, TimeUnit.NANOSECONDS.toMillis(delayNanos), TimeUnit.NANOSECONDS.toMillis(expectedAttemptNanos),
+                            TimeUnit.NANOSECONDS.toMillis(Math.max(0, remainingNanos)));
+                    count(endpoint, "deadline_exceeded");
+                    throw e;
+                }
+                if (!tryAcquireRetry()) {
+                    logger.warn("Not retrying {} call: global retry budget exhausted.", endpoint);
+                    count(endpoint, "budget_exhausted");
+                    throw e;
+                }
+                logger.info("Retrying {} call (attempt {}/{}) in {} ms after: {}", endpoint, attempt + 1,
+                        policy.maxAttempts(), TimeUnit.NANOSECONDS.toMillis(delayNanos), e.getMessage());
+                count(endpoint, "retried");
+                sleep(delayNanos, e);
+            }
+        }
+    }
+
+    /**
+     * Parses a {@code Retry-After} header (delta-seconds or HTTP-date) into seconds from now.
+     */
+    public static Long parseRetryAfterSeconds(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds, try HTTP-date
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toSeconds());
+        } catch (DateTimeParseException e) {
+            logger.debug("Ignoring unparseable Retry-After header: {}", retryAfter);
+            return null;
+        }
+    }
+
+    private long expectedAttemptNanos(String endpoint) {
+        long recent = hedgedExecutor.attemptLatencyNanos(endpoint);
+        return recent >= 0 ? recent : readTimeoutNanos;
+    }
+
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof ResourceAccessException) {
+            return true; // I/O error or timeout
+        }
+        if (e instanceof HttpStatusCodeException statusException) {
+            return statusException.getStatusCode().is5xxServerError()
+                    || statusException.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return false;
+    }
+
+    private static Long retryAfterNanos(RuntimeException e) {
+        if (e instanceof HttpStatusCodeException statusException && statusException.getResponseHeaders() != null) {
+            Long seconds = parseRetryAfterSeconds(statusException.getResponseHeaders().getFirst("Retry-After"));
+            return seconds != null ? TimeUnit.SECONDS.toNanos(seconds) : null;
+        }
+        return null;
+    }
+
+    // Full jitter: uniform in [0, min(maxDelay, base * 2^(attempt-1))]
+    static long backoffNanos(Policy policy, int attempt) {
+        long ceiling = policy.baseDelayNanos() << Math.min(attempt - 1, 20);
+        ceiling = Math.min(policy.maxDelayNanos(), ceiling);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long nanos, RuntimeException pending) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw pending;
+        }
+    }
+
+    private Policy loadPolicy(String endpoint) {
+        String prefix = "weather.retry.endpoint." + endpoint + ".";
+        int maxAttempts = environment.getProperty(prefix + "max-attempts", Integer.class,
+                environment.getProperty("weather.retry.max-attempts", Integer.class, 3));
+        Duration baseDelay = DurationStyle.detectAndParse(environment.getProperty(prefix + "base-delay",
+                environment.getProperty("weather.retry.base-delay", "100ms")));
+        Duration maxDelay = DurationStyle.detectAndParse(environment.getProperty(prefix + "max-delay",
+                environment.getProperty("weather.retry.max-delay", "2s")));
+        logger.debug("Retry policy for {}: maxAttempts={}, baseDelay={}, maxDelay={}", endpoint, maxAttempts, baseDelay, maxDelay);
+        return new Policy(maxAttempts, baseDelay.toNanos(), maxDelay.toNanos());
+    }
+
+    private synchronized void refillBudget() {
+        retryTokens = Math.min(budgetBurst, retryTokens + budgetRatio);
+    }
+
+    private synchronized boolean tryAcquireRetry() {
+        if (retryTokens >= 1.0) {
+            retryTokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    private void count(String endpoint, String outcome) {
+        meterRegistry.counter("weather.upstream.retries", "endpoint", endpoint, "outcome", outcome).increment();
+    }
+}
@@ -3,7 +3,8 @@ package com.example.weather_backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// The off-heap cache is off so the test neither creates a snapshot under cache/ nor loads one left by earlier runs
+@SpringBootTest(properties = "weather.cache.enabled=false")
 class WeatherBackendApplicationTests {
 
 	@Test
@@ -0,0 +1,67 @@
+package com.example.weather_backend.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Feeds latency samples straight into the limiter to check how the limit reacts
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    @Test
+    void rejectsOnceTheLimitIsInUse() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = limiter(registry, 4);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+        assertNull(limiter.tryAcquire());
+        assertEquals(1, registry.get("weather.admission.requests").tag("outcome", "rejected").counter().count());
+
+        permits.get(0).release();
+        permits.get(0).release(); // releasing twice must not free a second slot
+        assertEquals(3, limiter.getInflight());
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAndRecoversWhenItFalls() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 20);
+        feed(limiter, FAST, 20, 10);
+        int steady = limiter.getLimit();
+        assertTrue(steady > 20, "limit should grow while fully used at stable latency, was " + steady);
+
+        feed(limiter, SLOW, steady, 3);
+        int overloaded = limiter.getLimit();
+        assertTrue(overloaded < steady / 2, "limit should shrink when requests queue, was " + overloaded);
+
+        feed(limiter, FAST, overloaded, 20);
+        assertTrue(limiter.getLimit() > overloaded, "limit should recover once latency is back to normal");
+    }
+
+    @Test
+    void doesNotGrowWhileUnderused() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 20);
+        feed(limiter, FAST, 2, 20);
+        assertEquals(20, limiter.getLimit());
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(SimpleMeterRegistry registry, int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(registry, true, initialLimit, 4, 200, 0.2, 1.5, 20);
+    }
+
+    private static void feed(AdaptiveConcurrencyLimiter limiter, long rttNanos, int inflight, int windows) {
+        for (int i = 0; i < windows * 20; i++) {
+            limiter.onSample(rttNanos, inflight);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.weather_backend.analytics;
+
+import com.example.weather_backend.dto.WeatherTrendsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Derived fields of a trends snapshot: observation de-duplication, 3h tendencies and the AQI trend
+class LocationTrendsTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long T0 = 472_222 * HOUR; // on an hour boundary, so the hourly buckets line up
+
+    private final LocationTrends trends = new LocationTrends("25.20,55.27", 25.2, 55.27);
+
+    @Test
+    void ignoresRepeatedAndOlderObservations() {
+        trends.recordWeather("Dubai", T0 + HOUR, 30, 1010);
+        trends.recordWeather("Dubai", T0 + HOUR, 35, 1010); // same upstream timestamp, e.g. served from cache
+        trends.recordWeather("Dubai", T0, 40, 1010);
+
+        WeatherTrendsDto snapshot = trends.snapshot(T0 + HOUR);
+        assertEquals(1, snapshot.getObservations());
+        assertEquals(new WeatherTrendsDto.WindowStats(30, 30, 30, 1), snapshot.getTemperature1h());
+        assertEquals((T0 + HOUR) / 1000, snapshot.getLastObservation());
+    }
+
+    @Test
+    void pressureTendencyComparesWithTheHourlyMeanThreeHoursEarlier() {
+        trends.recordWeather("Dubai", T0, 30, 1010);
+        trends.recordWeather("Dubai", T0 + 20 * MINUTE, 30, 1012);
+        WeatherTrendsDto early = trends.snapshot(T0 + 20 * MINUTE);
+        assertNull(early.getPressureTendency3h(), "no reading three hours back yet");
+        assertNull(early.getPressureTrend());
+
+        trends.recordWeather("Dubai", T0 + 3 * HOUR + 10 * MINUTE, 30, 1015);
+        WeatherTrendsDto rising = trends.snapshot(T0 + 3 * HOUR + 10 * MINUTE);
+        assertEquals(4.0, rising.getPressureTendency3h(), 1e-9); // against the mean of 1010 and 1012
+        assertEquals("rising", rising.getPressureTrend());
+
+        trends.recordWeather("Dubai", T0 + 3 * HOUR + 40 * MINUTE, 30, 1011.5);
+        assertEquals("steady", trends.snapshot(T0 + 3 * HOUR + 40 * MINUTE).getPressureTrend());
+
+        trends.recordWeather("Dubai", T0 + 3 * HOUR + 50 * MINUTE, 30, 1008);
+        WeatherTrendsDto falling = trends.snapshot(T0 + 3 * HOUR + 50 * MINUTE);
+        assertEquals(-3.0, falling.getPressureTendency3h(), 1e-9);
+        assertEquals("falling", falling.getPressureTrend());
+    }
+
+    @Test
+    void classifiesAqiAgainstTheDailyMean() {
+        trends.recordAirQuality(T0, 2, 10);
+        assertNull(trends.snapshot(T0).getAqiTrend(), "one sample is not a trend");
+
+        trends.recordAirQuality(T0 + HOUR, 2, 11);
+        trends.recordAirQuality(T0 + 2 * HOUR, 2, 12);
+        assertEquals("stable", trends.snapshot(T0 + 2 * HOUR).getAqiTrend());
+
+        trends.recordAirQuality(T0 + 3 * HOUR, 4, 25);
+        WeatherTrendsDto worse = trends.snapshot(T0 + 3 * HOUR);
+        assertEquals(4, worse.getCurrentAqi());
+        assertEquals(2.5, worse.getAqi24h().getMean(), 1e-9);
+        assertEquals("worsening", worse.getAqiTrend());
+        assertEquals(15.0, worse.getPm25Change3h(), 1e-9);
+    }
+
+    @Test
+    void classifiesAqiAsImprovingWellBelowTheMean() {
+        trends.recordAirQuality(T0, 4, 40);
+        trends.recordAirQuality(T0 + HOUR, 4, 40);
+        trends.recordAirQuality(T0 + 2 * HOUR, 4, 40);
+        trends.recordAirQuality(T0 + 3 * HOUR, 1, 5);
+        assertEquals("improving", trends.snapshot(T0 + 3 * HOUR).getAqiTrend());
+
+        // Everything has left the 24h window: no current AQI and no trend any more
+        WeatherTrendsDto dayLater = trends.snapshot(T0 + 28 * HOUR);
+        assertNull(dayLater.getCurrentAqi());
+        assertNull(dayLater.getAqiTrend());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.weather_backend.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// One hour in twelve 5-minute buckets
+class RollingWindowTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final RollingWindow window = new RollingWindow(60 * MINUTE, 12);
+
+    @Test
+    void aggregatesSamplesOfTheSameBucket() {
+        window.add(0, 10);
+        window.add(MINUTE, 20);
+        window.add(6 * MINUTE, 30);
+
+        assertEquals(new RollingWindow.Stats(10, 30, 20, 3), window.stats(7 * MINUTE));
+        assertEquals(15, window.bucketMean(4 * MINUTE));
+        assertEquals(30, window.bucketMean(5 * MINUTE));
+        assertTrue(Double.isNaN(window.bucketMean(10 * MINUTE)));
+    }
+
+    @Test
+    void dropsBucketsThatFellOutOfTheWindow() {
+        window.add(0, 10);
+        window.add(30 * MINUTE, 20);
+
+        assertEquals(2, window.stats(59 * MINUTE).samples());
+        // The first bucket has left the window although its slot was never reused
+        assertEquals(new RollingWindow.Stats(20, 20, 20, 1), window.stats(60 * MINUTE));
+        assertNull(window.stats(120 * MINUTE));
+    }
+
+    @Test
+    void reusesSlotsWithoutCarryingOldValues() {
+        window.add(0, 10);
+        window.add(MINUTE, 12);
+        // Bucket 12 maps onto bucket 0's slot and must start from scratch
+        window.add(60 * MINUTE, 40);
+
+        assertEquals(new RollingWindow.Stats(40, 40, 40, 1), window.stats(60 * MINUTE));
+        assertTrue(Double.isNaN(window.bucketMean(0)), "evicted bucket must not be readable any more");
+        assertEquals(40, window.bucketMean(62 * MINUTE));
+    }
+
+    @Test
+    void skipsSamplesOlderThanTheirSlot() {
+        window.add(60 * MINUTE, 40);
+        window.add(2 * MINUTE, 99); // late arrival for the bucket that slot held before
+
+        assertEquals(new RollingWindow.Stats(40, 40, 40, 1), window.stats(60 * MINUTE));
+        assertEquals(40, window.bucketMean(60 * MINUTE));
+        assertTrue(Double.isNaN(window.bucketMean(2 * MINUTE)));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.weather_backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Cache keys, trends, nowcast and feeds all derive location identity from this one format
+class LocationKeyTest {
+
+    @Test
+    void roundsToTheSameGridForEveryKind() {
+        assertEquals("51.51,-0.13", LocationKey.of(51.5074, -0.1278));
+        assertEquals("51.51,-0.13", LocationKey.of(51.5149, -0.1251));
+        assertEquals("current:51.51,-0.13", LocationKey.of("current", 51.5074, -0.1278));
+        assertEquals("air:" + LocationKey.of(25.2048, 55.2708), LocationKey.of("air", 25.2048, 55.2708));
+    }
+
+    @Test
+    void ignoresTheDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            assertEquals("48.86,2.35", LocationKey.of(48.8566, 2.3522));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.weather_backend.cache;
+
+import com.example.weather_backend.dto.AirQualityComponents;
+import com.example.weather_backend.dto.CoordDto;
+import com.example.weather_backend.dto.OwmAirPollutionResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Works on real snapshot files: byte layout, restart, schema changes, torn writes and compaction
+class OffHeapWeatherCacheTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesHeaderAndRecordsInTheDocumentedLayout() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        OffHeapWeatherCache cache = open(file, 1);
+        CoordDto london = new CoordDto(51.51, -0.13, "London", "GB");
+        cache.put("geo:london", london, HOUR);
+        cache.close();
+
+        byte[] key = "geo:london".getBytes(StandardCharsets.UTF_8);
+        byte[] value = objectMapper.writeValueAsBytes(london);
+        ByteBuffer bytes = read(file, 0, 32 + 28 + key.length + value.length);
+        assertEquals(0x5758434143484531L, bytes.getLong(0));
+        assertEquals(1, bytes.getInt(8)); // format version
+        assertEquals(1, bytes.getInt(12)); // schema version
+        assertEquals(32 + 28 + key.length + value.length, bytes.getLong(16)); // committed end offset
+        assertEquals(0x57524543, bytes.getInt(32));
+        long storedAt = bytes.getLong(36);
+        assertEquals(HOUR.toMillis(), bytes.getLong(44) - storedAt);
+        assertEquals(key.length, bytes.getInt(52));
+        assertEquals(value.length, bytes.getInt(56));
+        assertArrayEquals(key, slice(bytes, 60, key.length));
+        assertArrayEquals(value, slice(bytes, 60 + key.length, value.length));
+    }
+
+    @Test
+    void reloadsLiveEntriesAfterRestart() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        OffHeapWeatherCache cache = open(file, 1);
+        cache.put("geo:london", new CoordDto(51.51, -0.13, "London", "GB"), HOUR);
+        cache.put("geo:paris", new CoordDto(48.85, 2.35, "Paris", "FR"), HOUR);
+        cache.put("geo:paris", new CoordDto(48.86, 2.35, "Paris", "FR"), HOUR);
+        cache.put("geo:oslo", new CoordDto(59.91, 10.75, "Oslo", "NO"), Duration.ofMillis(1));
+        cache.close();
+        sleep(5);
+
+        OffHeapWeatherCache restarted = open(file, 1);
+        assertEquals(2, restarted.size());
+        assertEquals(new CoordDto(48.86, 2.35, "Paris", "FR"), restarted.get("geo:paris", CoordDto.class));
+        assertEquals("London", restarted.get("geo:london", CoordDto.class).getName());
+        assertNull(restarted.get("geo:oslo", CoordDto.class));
+        restarted.close();
+    }
+
+    @Test
+    void discardsSnapshotWrittenWithAnotherSchemaVersion() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        OffHeapWeatherCache cache = open(file, 1);
+        cache.put("geo:london", new CoordDto(51.51, -0.13, "London", "GB"), HOUR);
+        cache.close();
+
+        OffHeapWeatherCache upgraded = open(file, 2);
+        assertEquals(0, upgraded.size());
+        assertNull(upgraded.get("geo:london", CoordDto.class));
+        upgraded.put("geo:paris", new CoordDto(48.85, 2.35, "Paris", "FR"), HOUR);
+        upgraded.close();
+        assertEquals(2, read(file, 12, 4).getInt(0));
+
+        OffHeapWeatherCache reopened = open(file, 2);
+        assertEquals(1, reopened.size());
+        assertNotNull(reopened.get("geo:paris", CoordDto.class));
+        reopened.close();
+    }
+
+    @Test
+    void dropsTruncatedTailRecordOnReload() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        OffHeapWeatherCache cache = open(file, 1);
+        cache.put("geo:london", new CoordDto(51.51, -0.13, "London", "GB"), HOUR);
+        cache.put("geo:paris", new CoordDto(48.85, 2.35, "Paris", "FR"), HOUR);
+        cache.close();
+
+        // As if the process died while the last record was only partly covered by the end offset
+        long end = read(file, 16, 8).getLong(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, end - 5), 16);
+        }
+
+        OffHeapWeatherCache reloaded = open(file, 1);
+        assertEquals(1, reloaded.size());
+        assertNotNull(reloaded.get("geo:london", CoordDto.class));
+        assertNull(reloaded.get("geo:paris", CoordDto.class));
+        // The torn record's space is reused by the next append
+        reloaded.put("geo:oslo", new CoordDto(59.91, 10.75, "Oslo", "NO"), HOUR);
+        reloaded.close();
+
+        OffHeapWeatherCache reopened = open(file, 1);
+        assertEquals(2, reopened.size());
+        assertEquals("Oslo", reopened.get("geo:oslo", CoordDto.class).getName());
+        reopened.close();
+    }
+
+    @Test
+    void compactsSupersededRecordsWhenFull() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        OffHeapWeatherCache cache = open(file, 1);
+        cache.put("geo:london", new CoordDto(51.51, -0.13, "London", "GB"), HOUR);
+        String payload = "x".repeat(50_000);
+        // About 5 MB of appends into a 1 MB file: only compaction keeps this going
+        for (int i = 0; i < 100; i++) {
+            cache.put("current:48.85,2.35", payload + i, HOUR);
+        }
+        assertEquals(2, cache.size());
+        assertEquals(payload + 99, cache.get("current:48.85,2.35", String.class));
+        assertEquals("London", cache.get("geo:london", CoordDto.class).getName());
+        cache.close();
+
+        OffHeapWeatherCache reopened = open(file, 1);
+        assertEquals(payload + 99, reopened.get("current:48.85,2.35", String.class));
+        assertEquals("London", reopened.get("geo:london", CoordDto.class).getName());
+        reopened.close();
+    }
+
+    @Test
+    void airQualityComponentsSurviveTheSnapshot() throws IOException {
+        String components = "{\"co\":201.94,\"no\":0.02,\"no2\":0.77,\"o3\":68.66,\"so2\":0.64,\"pm2_5\":0.5,\"pm10\":0.54,\"nh3\":0.12}";
+        OwmAirPollutionResponseDto original = objectMapper.readValue("{\"coord\":{\"lat\":25.2,\"lon\":55.27},"
+                + "\"list\":[{\"dt\":1700000000,\"main\":{\"aqi\":2},\"components\":" + components + "}]}", OwmAirPollutionResponseDto.class);
+        Path file = dir.resolve("cache.bin");
+        OffHeapWeatherCache cache = open(file, 1);
+        cache.put("air:25.20,55.27", original, HOUR);
+        cache.close();
+
+        // Read back from the mapped file after a restart, not from anything held on the heap
+        OffHeapWeatherCache restarted = open(file, 1);
+        OwmAirPollutionResponseDto cached = restarted.get("air:25.20,55.27", OwmAirPollutionResponseDto.class);
+        restarted.close();
+        assertEquals(original, cached);
+        AirQualityComponents restored = cached.getList().get(0).getComponents();
+        assertEquals(0.5, restored.get(AirQualityComponents.Pollutant.PM2_5));
+        assertEquals(objectMapper.readTree(components), objectMapper.valueToTree(restored));
+    }
+
+    @Test
+    void secondInstanceOnTheSameFileRunsDisabled() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        OffHeapWeatherCache owner = open(file, 1);
+        OffHeapWeatherCache intruder = open(file, 1);
+
+        intruder.put("geo:london", new CoordDto(0, 0, "Nowhere", null), HOUR);
+        owner.put("geo:london", new CoordDto(51.51, -0.13, "London", "GB"), HOUR);
+        assertNull(intruder.get("geo:london", CoordDto.class));
+        assertEquals("London", owner.get("geo:london", CoordDto.class).getName());
+        intruder.close();
+        owner.close();
+    }
+
+    @Test
+    void rejectsCapacityOutsideTheAddressableRange() {
+        Path file = dir.resolve("cache.bin");
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapWeatherCache(objectMapper, true, file.toString(), 2048, 1));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapWeatherCache(objectMapper, true, file.toString(), 0, 1));
+    }
+
+    private OffHeapWeatherCache open(Path file, int schemaVersion) throws IOException {
+        OffHeapWeatherCache cache = new OffHeapWeatherCache(objectMapper, true, file.toString(), 1, schemaVersion);
+        cache.open();
+        return cache;
+    }
+
+    private static ByteBuffer read(Path file, long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(bytes, position);
+        }
+        return bytes;
+    }
+
+    private static byte[] slice(ByteBuffer bytes, int offset, int length) {
+        byte[] out = new byte[length];
+        bytes.get(offset, out);
+        return out;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.weather_backend.cluster;
+
+import com.example.weather_backend.WeatherBackendApplication;
+import com.example.weather_backend.dto.ComprehensiveWeatherResponseDto;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Runs three backend nodes in-process against a stub OpenWeatherMap on localhost.
+// Settings are passed as command-line args so they win over application.properties.
+class ClusterCacheIntegrationTest {
+
+    private static final String CLUSTER_SECRET = "test-cluster-secret";
+    private static final int CONCURRENT_REQUESTS_PER_NODE = 8;
+    private static final long UPSTREAM_DELAY_MILLIS = 200;
+    private static final Map<String, AtomicInteger> upstreamCalls = new ConcurrentHashMap<>();
+    private static HttpServer owmStub;
+    private static List<ConfigurableApplicationContext> nodes;
+    private static List<String> nodeUrls;
+
+    @TempDir
+    static Path cacheDir;
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        owmStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub("/weather", "{\"name\":\"Dubai\",\"timezone\":14400,\"main\":{\"temp\":31.5,\"pressure\":1008,\"humidity\":40},"
+                + "\"sys\":{\"country\":\"AE\",\"sunrise\":1700000000,\"sunset\":1700040000}}");
+        stub("/forecast", "{\"cnt\":1,\"list\":[{\"dt\":1700010800,\"main\":{\"temp\":30.1},\"dt_txt\":\"2023-11-15 03:00:00\"}]}");
+        stub("/air_pollution", "{\"list\":[{\"dt\":1700000000,\"main\":{\"aqi\":2},\"components\":{\"pm2_5\":12.5}}]}");
+        stub("/direct", "[{\"name\":\"Dubai\",\"lat\":25.2048,\"lon\":55.2708,\"country\":\"AE\"}]");
+        owmStub.start();
+        String owmBase = "http://localhost:" + owmStub.getAddress().getPort();
+
+        List<Integer> ports = List.of(freePort(), freePort(), freePort());
+        nodeUrls = ports.stream().map(port -> "http://localhost:" + port).toList();
+        nodes = ports.stream().map(port -> new SpringApplicationBuilder(WeatherBackendApplication.class)
+                .run(
+                        "--server.port=" + port,
+                        "--openweathermap.api.url.current=" + owmBase + "/weather",
+                        "--openweathermap.api.url.forecast=" + owmBase + "/forecast",
+                        "--openweathermap.api.url.airpollution=" + owmBase + "/air_pollution",
+                        "--openweathermap.api.url.geocoding=" + owmBase + "/direct",
+                        "--weather.cache.snapshot-path=" + cacheDir.resolve("node-" + port + ".bin"),
+                        "--weather.cache.capacity-mb=1",
+                        "--weather.cluster.mode=peer",
+                        "--weather.cluster.self-url=http://localhost:" + port,
+                        "--weather.cluster.nodes=" + String.join(",", nodeUrls),
+                        "--weather.cluster.secret=" + CLUSTER_SECRET))
+                .toList();
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        if (nodes != null) {
+            nodes.forEach(ConfigurableApplicationContext::close);
+        }
+        if (owmStub != null) {
+            owmStub.stop(0);
+        }
+    }
+
+    @Test
+    void eachKeyIsFetchedUpstreamOnlyOnceAcrossAllNodes() throws Exception {
+        RestTemplate client = new RestTemplate();
+        // Cold cache, every node hit at once: misses for the same key must coalesce on the owner
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ComprehensiveWeatherResponseDto>> responses = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENT_REQUESTS_PER_NODE; i++) {
+                for (String nodeUrl : nodeUrls) {
+                    responses.add(clients.submit(() -> {
+                        start.await();
+                        return client.getForObject(nodeUrl + "/api/weather/location?city=Dubai", ComprehensiveWeatherResponseDto.class);
+                    }));
+                }
+            }
+            start.countDown();
+        }
+
+        for (Future<ComprehensiveWeatherResponseDto> future : responses) {
+            ComprehensiveWeatherResponseDto response = future.get();
+            assertNotNull(response);
+            assertEquals("Dubai", response.getLocationInfo().getResolvedName());
+            assertEquals(31.5, response.getCurrent().getMain().getTemp());
+            assertEquals(2, response.getAirQuality().getMain().getAqi());
+        }
+
+        assertEquals(1, upstreamCalls.get("/direct").get());
+        assertEquals(1, upstreamCalls.get("/weather").get());
+        assertEquals(1, upstreamCalls.get("/forecast").get());
+        assertEquals(1, upstreamCalls.get("/air_pollution").get());
+    }
+
+    @Test
+    void entryEndpointRejectsCallersWithoutTheClusterSecret() {
+        RestTemplate client = new RestTemplate();
+        String entryUrl = nodeUrls.get(0) + PeerDelegatingCacheTier.ENTRY_PATH + "?key=current:10.00,10.00";
+        int weatherCalls = upstreamCalls.get("/weather").get();
+
+        assertThrows(HttpClientErrorException.Forbidden.class, () -> client.getForObject(entryUrl, String.class));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(PeerDelegatingCacheTier.SECRET_HEADER, "guessed");
+        assertThrows(HttpClientErrorException.Forbidden.class,
+                () -> client.exchange(entryUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class));
+        assertEquals(weatherCalls, upstreamCalls.get("/weather").get());
+    }
+
+    private static void stub(String path, String json) {
+        upstreamCalls.put(path, new AtomicInteger());
+        owmStub.createContext(path, exchange -> {
+            upstreamCalls.get(path).incrementAndGet();
+            try {
+                Thread.sleep(UPSTREAM_DELAY_MILLIS); // keeps concurrent misses overlapping
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
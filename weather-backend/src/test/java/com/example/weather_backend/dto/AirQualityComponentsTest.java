@@ -0,0 +1,62 @@
+package com.example.weather_backend.dto;
+
+import com.example.weather_backend.dto.AirQualityComponents.Pollutant;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The double[] layout must read and write exactly the JSON object OWM sends in "components"
+// (the off-heap cache round trip is covered in OffHeapWeatherCacheTest)
+class AirQualityComponentsTest {
+
+    private static final String FULL = "{\"co\":201.94,\"no\":0.02,\"no2\":0.77,\"o3\":68.66,\"so2\":0.64,"
+            + "\"pm2_5\":0.5,\"pm10\":0.54,\"nh3\":0.12}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void roundTripsTheFullComponentsObject() throws Exception {
+        AirQualityComponents components = objectMapper.readValue(FULL, AirQualityComponents.class);
+        assertEquals(201.94, components.get(Pollutant.CO));
+        assertEquals(0.02, components.get(Pollutant.NO));
+        assertEquals(0.77, components.get(Pollutant.NO2));
+        assertEquals(68.66, components.get(Pollutant.O3));
+        assertEquals(0.64, components.get(Pollutant.SO2));
+        assertEquals(0.5, components.get(Pollutant.PM2_5));
+        assertEquals(0.54, components.get(Pollutant.PM10));
+        assertEquals(0.12, components.get(Pollutant.NH3));
+
+        String json = objectMapper.writeValueAsString(components);
+        assertEquals(objectMapper.readTree(FULL), objectMapper.readTree(json));
+        assertEquals(components, objectMapper.readValue(json, AirQualityComponents.class));
+    }
+
+    @Test
+    void omitsPollutantsTheApiDidNotReport() throws Exception {
+        AirQualityComponents components = objectMapper.readValue("{\"pm2_5\":12.5,\"o3\":40}", AirQualityComponents.class);
+        assertTrue(components.has(Pollutant.PM2_5));
+        assertTrue(components.has(Pollutant.O3));
+        assertFalse(components.has(Pollutant.CO));
+        assertTrue(Double.isNaN(components.get(Pollutant.NO2)));
+
+        assertEquals(objectMapper.readTree("{\"o3\":40.0,\"pm2_5\":12.5}"),
+                objectMapper.readTree(objectMapper.writeValueAsString(components)));
+        assertEquals("{}", objectMapper.writeValueAsString(new AirQualityComponents()));
+    }
+
+    @Test
+    void skipsUnknownKeysAndNonNumericValues() throws Exception {
+        String json = "{\"co\":1.5,\"ch4\":3.0,\"nested\":{\"pm10\":[1,2]},\"pm10\":\"n/a\",\"no2\":null,\"so2\":2}";
+        AirQualityComponents components = objectMapper.readValue(json, AirQualityComponents.class);
+
+        AirQualityComponents expected = new AirQualityComponents();
+        expected.set(Pollutant.CO, 1.5);
+        expected.set(Pollutant.SO2, 2);
+        assertEquals(expected, components);
+        assertEquals(objectMapper.readTree("{\"co\":1.5,\"so2\":2.0}"),
+                objectMapper.readTree(objectMapper.writeValueAsString(components)));
+    }
+}
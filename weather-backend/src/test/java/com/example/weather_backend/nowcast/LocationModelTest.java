@@ -0,0 +1,89 @@
+package com.example.weather_backend.nowcast;
+
+import com.example.weather_backend.dto.NowcastResponseDto;
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+import com.example.weather_backend.dto.OwmForecastResponseDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Synthetic diurnal observations: checks the anchoring arithmetic and the online scoring bookkeeping.
+// Not an accuracy benchmark; real accuracy is only measured online (/api/weather/nowcast/accuracy).
+class LocationModelTest {
+
+    private static final long START = 1_700_000_000L; // unix seconds
+
+    @Test
+    void anchoringCancelsAConstantForecastBiasAndEveryHorizonIsScored() {
+        LocationModel model = new LocationModel(0.5, 0.2, 0.9);
+        NowcastAccuracy accuracy = new NowcastAccuracy();
+
+        for (int hour = 0; hour < 72; hour++) {
+            long dt = START + hour * 3600L;
+            // Exact shape plus a constant 2 degree bias, which observed + f(t) - f(observedAt) removes by construction
+            model.train(observation(dt, temperature(dt)), forecast(dt, 2.0), accuracy);
+        }
+
+        List<NowcastResponseDto.HorizonAccuracy> results = accuracy.snapshot();
+        for (NowcastResponseDto.HorizonAccuracy horizon : results) {
+            assertTrue(horizon.getSamples() > 60, "horizon " + horizon.getHours() + " was not scored");
+            assertTrue(horizon.getModelMae() < horizon.getPersistenceMae(),
+                    "model should beat persistence at +" + horizon.getHours() + "h: " + horizon);
+        }
+        long lastDt = START + 71 * 3600L;
+        assertEquals(temperature(lastDt + 3 * 3600L),
+                model.predict(Variable.TEMPERATURE, (lastDt + 3 * 3600L) * 1000), 0.5);
+    }
+
+    @Test
+    void fallsBackToTrendSmoothingWithoutForecast() {
+        LocationModel model = new LocationModel(0.5, 0.2, 0.9);
+        NowcastAccuracy accuracy = new NowcastAccuracy();
+        for (int hour = 0; hour < 6; hour++) {
+            long dt = START + hour * 3600L;
+            model.train(observation(dt, 10 + hour), null, accuracy); // steady +1 degree per hour
+        }
+        long lastMillis = (START + 5 * 3600L) * 1000;
+        double inOneHour = model.predict(Variable.TEMPERATURE, lastMillis + LocationModel.HOUR_MILLIS);
+        double inThreeHours = model.predict(Variable.TEMPERATURE, lastMillis + 3 * LocationModel.HOUR_MILLIS);
+        assertTrue(inThreeHours > inOneHour && inOneHour > 14, "expected the warming trend to continue, got " + inOneHour + ", " + inThreeHours);
+        assertEquals("holt", model.method(lastMillis + LocationModel.HOUR_MILLIS));
+    }
+
+    private static double temperature(long dt) {
+        return 20 + 6 * Math.sin(2 * Math.PI * (dt % 86400) / 86400.0);
+    }
+
+    private static OwmCurrentWeatherResponseDto observation(long dt, double temperature) {
+        OwmCurrentWeatherResponseDto current = new OwmCurrentWeatherResponseDto();
+        OwmCurrentWeatherResponseDto.MainInfo main = new OwmCurrentWeatherResponseDto.MainInfo();
+        main.setTemp(temperature);
+        main.setPressure(1012);
+        main.setHumidity(50);
+        current.setMain(main);
+        current.setDt(dt);
+        return current;
+    }
+
+    // 3-hourly items starting at the next slot, like the OWM /forecast endpoint
+    private static List<OwmForecastResponseDto.ForecastItem> forecast(long issuedDt, double bias) {
+        List<OwmForecastResponseDto.ForecastItem> items = new ArrayList<>();
+        long firstSlot = (issuedDt / 10800 + 1) * 10800;
+        for (int i = 0; i < 8; i++) {
+            long dt = firstSlot + i * 10800L;
+            OwmCurrentWeatherResponseDto.MainInfo main = new OwmCurrentWeatherResponseDto.MainInfo();
+            main.setTemp(temperature(dt) + bias);
+            main.setPressure(1012);
+            main.setHumidity(50);
+            OwmForecastResponseDto.ForecastItem item = new OwmForecastResponseDto.ForecastItem();
+            item.setDt(dt);
+            item.setMain(main);
+            items.add(item);
+        }
+        return items;
+    }
+}
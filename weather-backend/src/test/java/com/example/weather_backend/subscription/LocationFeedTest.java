@@ -0,0 +1,109 @@
+package com.example.weather_backend.subscription;
+
+import com.example.weather_backend.dto.ComprehensiveWeatherResponseDto;
+import com.example.weather_backend.dto.CoordDto;
+import com.example.weather_backend.dto.OwmAirPollutionResponseDto;
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+import com.example.weather_backend.dto.OwmForecastResponseDto;
+import com.example.weather_backend.dto.WeatherUpdateDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Change detection between refreshes: first a full snapshot, then only the sections that differ
+class LocationFeedTest {
+
+    @Test
+    void pushesOnlyChangedSections() {
+        LocationFeed feed = new LocationFeed("51.51,-0.13", new CoordDto(51.51, -0.13, null, null));
+
+        WeatherUpdateDto first = feed.apply(response(12.5, 3));
+        assertTrue(first.isSnapshot());
+        assertNotNull(first.getCurrent());
+        assertNotNull(first.getForecastList());
+        assertNotNull(first.getAirQuality());
+
+        assertNull(feed.apply(response(12.5, 3)), "identical data must not be pushed");
+
+        WeatherUpdateDto warmer = feed.apply(response(13.0, 3));
+        assertEquals(2, warmer.getVersion());
+        assertNotNull(warmer.getCurrent());
+        assertNull(warmer.getForecastList());
+        assertNull(warmer.getAirQuality());
+        assertNull(warmer.getLocationInfo());
+
+        // A failed AQI call is not a change, and later subscribers still get the last known AQI
+        ComprehensiveWeatherResponseDto withoutAqi = response(13.0, 3);
+        withoutAqi.setAirQuality(null);
+        assertNull(feed.apply(withoutAqi));
+        assertEquals(3, feed.snapshot().getAirQuality().getMain().getAqi());
+    }
+
+    @Test
+    void joinerGetsItsSnapshotBeforeLaterUpdatesInQueueOrder() {
+        LocationFeed feed = new LocationFeed("51.51,-0.13", new CoordDto(51.51, -0.13, null, null));
+        Subscriber early = new Subscriber(new SseEmitter(), List.of(feed.key()));
+        feed.join(early, snapshot -> fail("no state to send yet"));
+        assertTrue(early.enqueue(event(feed.publish(response(12.5, 3), update -> { }))), "first event starts a drain");
+
+        Subscriber late = new Subscriber(new SseEmitter(), List.of(feed.key()));
+        feed.join(late, snapshot -> late.enqueue(event(snapshot)));
+        feed.publish(response(13.0, 3), update -> feed.subscribers().forEach(subscriber -> subscriber.enqueue(event(update))));
+
+        assertEquals(List.of("1", "2"), drainIds(early));
+        assertEquals(List.of("1", "2"), drainIds(late));
+        assertFalse(late.finishDrain(), "nothing queued meanwhile");
+        assertTrue(late.enqueue(event(feed.snapshot())), "the next event starts a new drain");
+    }
+
+    private static Set<ResponseBodyEmitter.DataWithMediaType> event(WeatherUpdateDto update) {
+        return SseEmitter.event().id(String.valueOf(update.getVersion())).data(update.getVersion()).build();
+    }
+
+    // Event ids in the order a drain would write them
+    private static List<String> drainIds(Subscriber subscriber) {
+        List<String> ids = new ArrayList<>();
+        for (Set<ResponseBodyEmitter.DataWithMediaType> event = subscriber.nextQueued(); event != null; event = subscriber.nextQueued()) {
+            String text = event.iterator().next().getData().toString();
+            ids.add(text.substring(text.indexOf("id:") + 3, text.indexOf('\n', text.indexOf("id:"))));
+        }
+        return ids;
+    }
+
+    private static ComprehensiveWeatherResponseDto response(double temperature, int aqi) {
+        OwmCurrentWeatherResponseDto.MainInfo main = new OwmCurrentWeatherResponseDto.MainInfo();
+        main.setTemp(temperature);
+        OwmCurrentWeatherResponseDto current = new OwmCurrentWeatherResponseDto();
+        current.setMain(main);
+
+        OwmCurrentWeatherResponseDto.MainInfo forecastMain = new OwmCurrentWeatherResponseDto.MainInfo();
+        forecastMain.setTemp(15);
+        OwmForecastResponseDto.ForecastItem item = new OwmForecastResponseDto.ForecastItem();
+        item.setDt(1_700_000_000L);
+        item.setMain(forecastMain);
+
+        OwmAirPollutionResponseDto.AirPollutionData airQuality = new OwmAirPollutionResponseDto.AirPollutionData();
+        OwmAirPollutionResponseDto.MainInfo mainAqi = new OwmAirPollutionResponseDto.MainInfo();
+        mainAqi.setAqi(aqi);
+        airQuality.setMain(mainAqi);
+
+        return ComprehensiveWeatherResponseDto.builder()
+                .locationInfo(ComprehensiveWeatherResponseDto.LocationInfo.builder().latitude(51.51).longitude(-0.13).build())
+                .current(current)
+                .forecastList(List.of(item))
+                .airQuality(airQuality)
+                .dataSource("owm")
+                .build();
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.weather_backend.subscription;
+
+import com.example.weather_backend.dto.ComprehensiveWeatherResponseDto;
+import com.example.weather_backend.dto.CoordDto;
+import com.example.weather_backend.dto.OwmCurrentWeatherResponseDto;
+import com.example.weather_backend.exception.WeatherServiceException;
+import com.example.weather_backend.service.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Hub bookkeeping against stub emitters that record writes and can simulate a client going away
+class WeatherSubscriptionHubTest {
+
+    private static final CoordDto LONDON = new CoordDto(51.51, -0.13, null, null);
+    private static final CoordDto PARIS = new CoordDto(48.85, 2.35, null, null);
+    private static final CoordDto OSLO = new CoordDto(59.91, 10.75, null, null);
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WeatherService weatherService = mock(WeatherService.class);
+    private WeatherSubscriptionHub hub;
+    private boolean nextStreamBroken;
+
+    @BeforeEach
+    void stubUpstream() {
+        when(weatherService.fetchAllWeatherData(anyDouble(), anyDouble(), any())).thenAnswer(invocation -> response(12.5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (hub != null) {
+            hub.shutdown();
+        }
+    }
+
+    @Test
+    void dropsAFeedWhenItsLastSubscriberLeaves() {
+        hub = hub(NEVER, 10);
+        StubEmitter first = subscribe(LONDON);
+        StubEmitter second = subscribe(LONDON, PARIS);
+        assertEquals(2, gauge("weather.subscriptions.locations"));
+        assertEquals(2, gauge("weather.subscriptions.active"));
+        await(() -> first.count("event:snapshot") == 1 && second.count("event:snapshot") == 2);
+
+        first.disconnect();
+        assertEquals(2, gauge("weather.subscriptions.locations"), "London still has a subscriber");
+        assertEquals(1, gauge("weather.subscriptions.active"));
+
+        second.disconnect();
+        second.disconnect(); // timeout and completion callbacks can both fire
+        assertEquals(0, gauge("weather.subscriptions.locations"));
+        assertEquals(0, gauge("weather.subscriptions.active"));
+    }
+
+    @Test
+    void rejectsSubscribersOverTheLimitWithRetryAfter() {
+        hub = hub(NEVER, 1);
+        StubEmitter first = subscribe(LONDON);
+
+        WeatherServiceException rejected = assertThrows(WeatherServiceException.class, () -> hub.subscribe(List.of(PARIS)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatus());
+        assertEquals(30L, rejected.getRetryAfterSeconds());
+        assertEquals(1, gauge("weather.subscriptions.active"));
+        assertEquals(1, gauge("weather.subscriptions.locations"), "a rejected subscriber creates no feed");
+
+        first.disconnect();
+        subscribe(PARIS);
+        assertEquals(1, gauge("weather.subscriptions.active"));
+    }
+
+    @Test
+    void sendsOneHeartbeatPerSubscriberHoweverManyLocations() throws InterruptedException {
+        hub = hub(Duration.ofMillis(300), 10);
+        StubEmitter threeLocations = subscribe(LONDON, PARIS, OSLO);
+        StubEmitter oneLocation = subscribe(LONDON);
+
+        await(() -> threeLocations.count("keep-alive") >= 1 && oneLocation.count("keep-alive") >= 1);
+        Thread.sleep(100); // well before the next round
+        assertEquals(1, threeLocations.count("keep-alive"));
+        assertEquals(1, oneLocation.count("keep-alive"));
+    }
+
+    @Test
+    void unsubscribesWhenASendFails() {
+        hub = hub(NEVER, 10);
+        StubEmitter healthy = subscribe(LONDON);
+        nextStreamBroken = true;
+        StubEmitter broken = subscribe(LONDON, PARIS);
+
+        await(() -> broken.completed && gauge("weather.subscriptions.active") == 1);
+        assertEquals(1, gauge("weather.subscriptions.locations"), "only the healthy subscriber's feed is left");
+        await(() -> healthy.count("event:snapshot") == 1);
+        assertTrue(broken.written.isEmpty());
+    }
+
+    private WeatherSubscriptionHub hub(Duration heartbeatInterval, int maxSubscribers) {
+        return new WeatherSubscriptionHub(weatherService, new ObjectMapper(), meterRegistry, NEVER, heartbeatInterval,
+                Duration.ofMinutes(30), maxSubscribers, 4) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                return new StubEmitter(nextStreamBroken);
+            }
+        };
+    }
+
+    private StubEmitter subscribe(CoordDto... locations) {
+        return (StubEmitter) hub.subscribe(List.of(locations));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static ComprehensiveWeatherResponseDto response(double temperature) {
+        OwmCurrentWeatherResponseDto.MainInfo main = new OwmCurrentWeatherResponseDto.MainInfo();
+        main.setTemp(temperature);
+        OwmCurrentWeatherResponseDto current = new OwmCurrentWeatherResponseDto();
+        current.setMain(main);
+        return ComprehensiveWeatherResponseDto.builder()
+                .current(current)
+                .forecastList(List.of())
+                .dataSource("owm")
+                .build();
+    }
+
+    // Records what the hub writes instead of needing a servlet container
+    private static final class StubEmitter extends SseEmitter {
+        final List<String> written = new CopyOnWriteArrayList<>();
+        private final boolean broken;
+        private final List<Runnable> completionCallbacks = new ArrayList<>();
+        volatile boolean completed;
+
+        StubEmitter(boolean broken) {
+            this.broken = broken;
+        }
+
+        @Override
+        public synchronized void send(Set<ResponseBodyEmitter.DataWithMediaType> items) throws IOException {
+            if (broken) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder text = new StringBuilder();
+            items.forEach(item -> text.append(item.getData()));
+            written.add(text.toString());
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            completionCallbacks.add(callback);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        long count(String marker) {
+            return written.stream().filter(event -> event.contains(marker)).count();
+        }
+
+        // What the container does when the client closes the connection
+        void disconnect() {
+            List<Runnable> callbacks;
+            synchronized (this) {
+                callbacks = List.copyOf(completionCallbacks);
+            }
+            callbacks.forEach(Runnable::run);
+        }
+    }
+}
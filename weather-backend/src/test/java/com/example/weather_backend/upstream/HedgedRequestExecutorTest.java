@@ -0,0 +1,173 @@
+package com.example.weather_backend.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Attempts are stubbed with latches and sleeps; five warm-up samples make the hedge delay the 50ms floor
+class HedgedRequestExecutorTest {
+
+    private static final String ENDPOINT = "current";
+    private static final int MIN_SAMPLES = 5;
+    private static final Duration MIN_DELAY = Duration.ofMillis(50);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HedgedRequestExecutor executor = executor(0.1, 10);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+        Deadline.clear();
+    }
+
+    @Test
+    void doesNotHedgeBeforeMinSamples() {
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < MIN_SAMPLES - 1; i++) {
+            assertEquals("ok", executor.execute(ENDPOINT, () -> {
+                attempts.incrementAndGet();
+                sleep(100);
+                return "ok";
+            }));
+        }
+        assertEquals(MIN_SAMPLES - 1, attempts.get());
+        assertEquals(0, hedges("fired"));
+        assertEquals(-1, executor.attemptLatencyNanos(ENDPOINT));
+    }
+
+    @Test
+    void hedgesAfterTheObservedLatencyAndCountsTheWin() {
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        long started = System.nanoTime();
+        String result = executor.execute(ENDPOINT, () -> attempts.incrementAndGet() == 1 ? awaitRelease("primary") : "hedge");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertTrue(elapsedMillis >= MIN_DELAY.toMillis(), "hedge fired after " + elapsedMillis + " ms");
+        assertEquals(1, hedges("fired"));
+        assertEquals(1, hedges("won"));
+    }
+
+    @Test
+    void fastFailureFallsThroughToTheOtherAttempt() {
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        String result = executor.execute(ENDPOINT, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(200);
+                return "primary";
+            }
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        });
+
+        assertEquals("primary", result);
+        assertEquals(1, hedges("fired"));
+        assertEquals(0, hedges("won"));
+    }
+
+    @Test
+    void skipsTheHedgeWhenTheBudgetIsExhausted() {
+        executor.shutdown();
+        executor = executor(0, 0);
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        assertEquals("slow", executor.execute(ENDPOINT, () -> {
+            attempts.incrementAndGet();
+            sleep(150);
+            return "slow";
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, hedges("fired"));
+        assertEquals(1, hedges("budget_exhausted"));
+    }
+
+    @Test
+    void reportsTheDeadlineAsResourceAccessException() {
+        Deadline.start(Duration.ofMillis(100));
+        long started = System.nanoTime();
+        assertThrows(ResourceAccessException.class, () -> executor.execute(ENDPOINT, () -> awaitRelease("late")));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void cutsTheCallerTailBelowTheAttemptTailForBimodalLatency() {
+        // One attempt in 25 is slow: well outside the p95, so each slow primary is hedged by a fast attempt
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<String> bimodal = () -> {
+            sleep(attempts.incrementAndGet() % 25 == 0 ? 300 : 5);
+            return "ok";
+        };
+        for (int i = 0; i < 100; i++) {
+            executor.execute(ENDPOINT, bimodal);
+        }
+        sleep(400); // let the abandoned slow attempts record their latency
+
+        double callerP99 = p99("weather.upstream.latency");
+        double attemptP99 = p99("weather.upstream.attempt.latency");
+        assertTrue(hedges("fired") >= 3, "slow attempts were hedged");
+        assertTrue(attemptP99 >= 250, "attempt p99 " + attemptP99 + " ms");
+        assertTrue(callerP99 < attemptP99 / 2, "caller p99 " + callerP99 + " ms vs attempt p99 " + attemptP99 + " ms");
+    }
+
+    private HedgedRequestExecutor executor(double budgetRatio, double budgetBurst) {
+        return new HedgedRequestExecutor(meterRegistry, true, 0.95, MIN_SAMPLES, MIN_DELAY, budgetRatio, budgetBurst);
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            executor.execute(ENDPOINT, () -> "warm");
+        }
+        assertTrue(executor.attemptLatencyNanos(ENDPOINT) >= 0);
+    }
+
+    private double hedges(String outcome) {
+        return meterRegistry.get("weather.upstream.hedges").tag("endpoint", ENDPOINT).tag("outcome", outcome).counter().count();
+    }
+
+    private double p99(String timerName) {
+        Timer timer = meterRegistry.get(timerName).tag("endpoint", ENDPOINT).timer();
+        return Arrays.stream(timer.takeSnapshot().percentileValues())
+                .filter(value -> value.percentile() == 0.99)
+                .mapToDouble(value -> value.value(TimeUnit.MILLISECONDS))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private <T> T awaitRelease(T value) {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
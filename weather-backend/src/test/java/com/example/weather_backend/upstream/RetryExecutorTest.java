@@ -0,0 +1,206 @@
+package com.example.weather_backend.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Backoffs are 1ms unless a test says otherwise, so only the deadline and budget decide whether to retry
+class RetryExecutorTest {
+
+    private static final String ENDPOINT = "current";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HedgedRequestExecutor hedgedExecutor =
+            new HedgedRequestExecutor(meterRegistry, true, 0.95, 1, Duration.ofMillis(1), 0.1, 10);
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("weather.retry.max-attempts", "3")
+            .withProperty("weather.retry.base-delay", "1ms")
+            .withProperty("weather.retry.max-delay", "1ms");
+
+    @AfterEach
+    void tearDown() {
+        hedgedExecutor.shutdown();
+        Deadline.clear();
+    }
+
+    @Test
+    void parsesRetryAfterAsDeltaSecondsOrHttpDate() {
+        assertEquals(120L, RetryExecutor.parseRetryAfterSeconds("120"));
+        assertEquals(7L, RetryExecutor.parseRetryAfterSeconds(" 7 "));
+        assertEquals(0L, RetryExecutor.parseRetryAfterSeconds("-5"));
+
+        String inTwoMinutes = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(120));
+        long seconds = RetryExecutor.parseRetryAfterSeconds(inTwoMinutes);
+        assertTrue(seconds >= 115 && seconds <= 120, "HTTP-date parsed to " + seconds + "s");
+        assertEquals(0L, RetryExecutor.parseRetryAfterSeconds("Wed, 21 Oct 2015 07:28:00 GMT"));
+
+        assertNull(RetryExecutor.parseRetryAfterSeconds(null));
+        assertNull(RetryExecutor.parseRetryAfterSeconds("  "));
+        assertNull(RetryExecutor.parseRetryAfterSeconds("soon"));
+        assertNull(RetryExecutor.parseRetryAfterSeconds("Wed, 32 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    void backoffIsFullJitterUnderTheCappedExponentialCeiling() {
+        RetryExecutor.Policy policy = new RetryExecutor.Policy(10, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(2));
+        assertWithinCeiling(policy, 1, TimeUnit.MILLISECONDS.toNanos(100));
+        assertWithinCeiling(policy, 3, TimeUnit.MILLISECONDS.toNanos(400));
+        assertWithinCeiling(policy, 6, TimeUnit.SECONDS.toNanos(2)); // 3.2s uncapped
+        assertWithinCeiling(policy, 60, TimeUnit.SECONDS.toNanos(2)); // shift is bounded, no overflow
+    }
+
+    @Test
+    void skipsRetryWhenBackoffPlusRecentP95ExceedsTheDeadline() {
+        // The read timeout alone would allow the retry; the endpoint's observed 300ms attempts do not
+        RetryExecutor retryExecutor = retryExecutor(Duration.ofMillis(10), 0.2, 20);
+        hedgedExecutor.execute(ENDPOINT, () -> sleep(300));
+        assertTrue(hedgedExecutor.attemptLatencyNanos(ENDPOINT) >= TimeUnit.MILLISECONDS.toNanos(300));
+
+        Deadline.start(Duration.ofMillis(250));
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(HttpServerErrorException.class, () -> retryExecutor.execute(ENDPOINT, () -> {
+            attempts.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(1, retries("deadline_exceeded"));
+        assertEquals(0, retries("retried"));
+    }
+
+    @Test
+    void retriesWhileBackoffPlusRecentP95FitsTheDeadline() {
+        RetryExecutor retryExecutor = retryExecutor(Duration.ofSeconds(5), 0.2, 20);
+        hedgedExecutor.execute(ENDPOINT, () -> "fast");
+
+        Deadline.start(Duration.ofMillis(250));
+        AtomicInteger attempts = new AtomicInteger();
+        assertEquals("ok", retryExecutor.execute(ENDPOINT, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ResourceAccessException("connection reset");
+            }
+            return "ok";
+        }));
+        assertEquals(2, retries("retried"));
+    }
+
+    @Test
+    void stopsRetryingWhenTheBudgetIsExhausted() {
+        RetryExecutor retryExecutor = retryExecutor(Duration.ofMillis(10), 0, 0);
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(ResourceAccessException.class, () -> retryExecutor.execute(ENDPOINT, () -> {
+            attempts.incrementAndGet();
+            throw new ResourceAccessException("connection reset");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(1, retries("budget_exhausted"));
+    }
+
+    @Test
+    void retriesTooManyRequestsButNoOtherClientError() {
+        RetryExecutor retryExecutor = retryExecutor(Duration.ofMillis(10), 0.2, 20);
+        AtomicInteger notFound = new AtomicInteger();
+        assertThrows(HttpClientErrorException.class, () -> retryExecutor.execute(ENDPOINT, () -> {
+            notFound.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", HttpHeaders.EMPTY, null, null);
+        }));
+        assertEquals(1, notFound.get());
+
+        HttpHeaders retryAfter = new HttpHeaders();
+        retryAfter.set(HttpHeaders.RETRY_AFTER, "0");
+        AtomicInteger throttled = new AtomicInteger();
+        assertEquals("ok", retryExecutor.execute(ENDPOINT, () -> {
+            if (throttled.incrementAndGet() == 1) {
+                throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", retryAfter, null, null);
+            }
+            return "ok";
+        }));
+        assertEquals(2, throttled.get());
+    }
+
+    @Test
+    void backgroundCallsShareOneDeadlineAcrossAllAttempts() {
+        environment.setProperty("weather.retry.max-attempts", "10");
+        RetryExecutor retryExecutor = new RetryExecutor(environment, meterRegistry, hedgedExecutor, true,
+                Duration.ofMillis(300), Duration.ofMillis(1), 0.2, 20);
+        List<Long> remainingAtAttempt = new ArrayList<>();
+        assertThrows(ResourceAccessException.class, () -> retryExecutor.execute("background", () -> {
+            remainingAtAttempt.add(Deadline.remainingNanos());
+            sleep(100);
+            throw new ResourceAccessException("read timed out");
+        }));
+
+        assertTrue(remainingAtAttempt.size() >= 2 && remainingAtAttempt.size() <= 4, "attempts: " + remainingAtAttempt.size());
+        assertTrue(remainingAtAttempt.get(0) <= TimeUnit.MILLISECONDS.toNanos(300));
+        for (int i = 1; i < remainingAtAttempt.size(); i++) {
+            assertTrue(remainingAtAttempt.get(i) < remainingAtAttempt.get(i - 1) - TimeUnit.MILLISECONDS.toNanos(90),
+                    "attempt " + (i + 1) + " got a fresh budget");
+        }
+        assertFalse(Deadline.isActive(), "the executor's own deadline is cleared afterwards");
+    }
+
+    @Test
+    void keepsTheInboundRequestDeadline() {
+        RetryExecutor retryExecutor = retryExecutor(Duration.ofMillis(10), 0.2, 20);
+        Deadline.start(Duration.ofMillis(500));
+        long remaining = retryExecutor.execute(ENDPOINT, Deadline::remainingNanos);
+
+        assertTrue(remaining <= TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(Deadline.isActive(), "the request's deadline is left to RequestDeadlineFilter");
+    }
+
+    private RetryExecutor retryExecutor(Duration readTimeout, double budgetRatio, double budgetBurst) {
+        return new RetryExecutor(environment, meterRegistry, hedgedExecutor, true, Duration.ofSeconds(10), readTimeout,
+                budgetRatio, budgetBurst);
+    }
+
+    private double retries(String outcome) {
+        return meterRegistry.counter("weather.upstream.retries", "endpoint", ENDPOINT, "outcome", outcome).count();
+    }
+
+    private static void assertWithinCeiling(RetryExecutor.Policy policy, int attempt, long ceilingNanos) {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 2000; i++) {
+            long delay = RetryExecutor.backoffNanos(policy, attempt);
+            assertTrue(delay >= 0 && delay <= ceilingNanos, "attempt " + attempt + " delay " + delay);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        // Spread over the whole range rather than clustered near the ceiling
+        assertTrue(min < ceilingNanos / 10, "attempt " + attempt + " min " + min);
+        assertTrue(max > ceilingNanos * 9 / 10, "attempt " + attempt + " max " + max);
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "slept";
+    }
+}